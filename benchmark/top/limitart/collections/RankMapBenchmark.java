@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 排行榜更新基准
+ *
+ * @author hank
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankMapBenchmark {
+    private static final Comparator<Score> COMPARATOR = Comparator.comparingLong(Score::score).reversed().thenComparingLong(Score::key);
+    @Param({"1000", "100000"})
+    private int size;
+    @Param({"list", "tree", "batch"})
+    private String impl;
+    private RankMap<Long, Score> rankMap;
+
+    @Setup
+    public void setup() {
+        switch (impl) {
+            case "tree":
+                rankMap = RankMap.createTree(COMPARATOR, size);
+                break;
+            case "batch":
+                rankMap = RankMap.createFrequencyWrite(COMPARATOR, size, 1024, 100, TimeUnit.MILLISECONDS);
+                break;
+            default:
+                rankMap = RankMap.create(COMPARATOR, size);
+        }
+        for (long i = 0; i < size; ++i) {
+            rankMap.replaceOrPut(new Score(i, i));
+        }
+    }
+
+    @Benchmark
+    public int update() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long key = random.nextInt(size);
+        rankMap.replaceOrPut(new Score(key, random.nextLong(size * 10L)));
+        return rankMap.size();
+    }
+
+    @Benchmark
+    public Score getAt() {
+        return rankMap.getAt(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public int getIndex() {
+        return rankMap.getIndex((long) ThreadLocalRandom.current().nextInt(size));
+    }
+
+    public static class Score implements RankMap.LongRankObj {
+        private final long id;
+        private final long score;
+
+        public Score(long id, long score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public Long key() {
+            return id;
+        }
+
+        public long score() {
+            return score;
+        }
+    }
+}
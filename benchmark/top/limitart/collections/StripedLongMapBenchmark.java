@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单键高并发累加基准(所有线程累加同一个键)
+ *
+ * @author hank
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class StripedLongMapBenchmark {
+    private static final String KEY = "kill";
+    private StripedLongMap<String> striped;
+    private AtomicLongMap<String> atomic;
+
+    @Setup
+    public void setup() {
+        striped = new StripedLongMap<>();
+        atomic = new AtomicLongMap<>();
+    }
+
+    @Benchmark
+    public void striped() {
+        striped.increment(KEY);
+    }
+
+    @Benchmark
+    public long atomic() {
+        return atomic.incrementAndGet(KEY);
+    }
+}
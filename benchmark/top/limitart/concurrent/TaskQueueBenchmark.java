@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务队列吞吐量与延迟基准
+ *
+ * @author hank
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskQueueBenchmark {
+    private static final int BATCH = 1000;
+    @Param({"disruptor", "linked"})
+    private String type;
+    private TaskQueue queue;
+
+    @Setup
+    public void setup() {
+        queue = "disruptor".equals(type) ? DisruptorTaskQueue.create("benchmark") : LinkedBlockingTaskQueue.create("benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    /**
+     * 投递一批任务直到全部执行完
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(BATCH)
+    @Threads(4)
+    public void throughput() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; ++i) {
+            queue.execute(latch::countDown);
+        }
+        latch.await();
+    }
+
+    /**
+     * 单个任务从投递到执行完的往返时间
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.execute(latch::countDown);
+        latch.await();
+    }
+}
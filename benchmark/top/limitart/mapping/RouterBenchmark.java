@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.mapping;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由分发基准
+ *
+ * @author hank
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    private Router<Request, Param> router;
+    private MapperInvoker<Param> invoker;
+    private Request request;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        router = Router.empty(Request.class, Param.class);
+        router.registerMapperClass(Handler.class);
+        invoker = router.invoker(Request.class);
+        request = new Request();
+    }
+
+    @Benchmark
+    public int request() {
+        router.request(request, () -> new Param(request), Router.MethodInvoker::invoke);
+        return request.handled;
+    }
+
+    @Benchmark
+    public int invoker() {
+        invoker.invoke(new Param(request));
+        return request.handled;
+    }
+
+    public static class Request {
+        private int handled;
+    }
+
+    public static class Param extends RequestContext<Request> {
+        public Param(Request request) {
+            super(request);
+        }
+    }
+
+    @MapperClass
+    public static class Handler {
+        @Mapper(Request.class)
+        public void onRequest(Param param) {
+            Request request = param.msg();
+            ++request.handled;
+        }
+    }
+}
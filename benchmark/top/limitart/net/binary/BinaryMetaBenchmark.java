@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二进制消息编解码基准
+ *
+ * @author hank
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryMetaBenchmark {
+    private ByteBuf buffer;
+    private PlayerInfoMessage message;
+
+    @Setup
+    public void setup() {
+        buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(1024);
+        message = new PlayerInfoMessage();
+        message.playerId = 10086L;
+        message.level = 99;
+        message.name = "玩家limitart";
+        message.gold = 123456789L;
+        message.items = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            ItemMeta item = new ItemMeta();
+            item.id = 1000 + i;
+            item.num = i;
+            message.items.add(item);
+        }
+        message.skills = new int[]{1, 2, 3, 4, 5, 6, 7, 8};
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public ByteBuf encode() throws Exception {
+        buffer.clear();
+        message.buffer(buffer);
+        message.encode();
+        message.buffer(null);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuf reflectEncode() throws Exception {
+        buffer.clear();
+        message.buffer(buffer);
+        message.reflectEncode();
+        message.buffer(null);
+        return buffer;
+    }
+
+    @Benchmark
+    public PlayerInfoMessage roundTrip() throws Exception {
+        encode();
+        PlayerInfoMessage result = new PlayerInfoMessage();
+        result.buffer(buffer);
+        result.decode();
+        result.buffer(null);
+        return result;
+    }
+
+    @Benchmark
+    public PlayerInfoMessage reflectRoundTrip() throws Exception {
+        reflectEncode();
+        PlayerInfoMessage result = new PlayerInfoMessage();
+        result.buffer(buffer);
+        result.reflectDecode();
+        result.buffer(null);
+        return result;
+    }
+
+    public static class ItemMeta extends BinaryMeta {
+        public int id;
+        public int num;
+    }
+
+    public static class PlayerInfoMessage extends BinaryMessage {
+        public long playerId;
+        public int level;
+        public String name;
+        public long gold;
+        public List<ItemMeta> items;
+        public int[] skills;
+
+        @Override
+        public short id() {
+            return BinaryMessages.createID(0X01, 0X01);
+        }
+    }
+}
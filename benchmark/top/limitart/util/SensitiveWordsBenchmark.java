@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤基准
+ *
+ * @author hank
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveWordsBenchmark {
+    private SensitiveWords words;
+    private String clean;
+    private String dirty;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            list.add("敏感" + i);
+        }
+        list.add("坏词");
+        words = new SensitiveWords();
+        words.init(list);
+        clean = "今天天气不错，一起去打副本吧，记得带上药水和卷轴。";
+        dirty = "今天天气不错，坏词一起去打副本吧，敏感42记得带上药水和卷轴。";
+    }
+
+    @Benchmark
+    public String filterClean() {
+        return words.filter(clean, "*");
+    }
+
+    @Benchmark
+    public String filterDirty() {
+        return words.filter(dirty, "*");
+    }
+
+    @Benchmark
+    public boolean hasBadWords() {
+        return words.hasBadWords(dirty);
+    }
+}
@@ -32,6 +32,15 @@ public class Conditions {
         Conditions.args(value > 0, "value must > 0");
     }
 
+    /**
+     * 检测是否为正数
+     *
+     * @param value
+     */
+    public static void positive(long value) {
+        Conditions.args(value > 0, "value must > 0");
+    }
+
     /**
      * 检测是否为自然数
      *
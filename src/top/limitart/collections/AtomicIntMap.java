@@ -26,6 +26,8 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * @param <K>
  * @author hank
+ * @see StripedLongMap
+ * @see ConcurrentLongCountMap
  */
 @ThreadSafe
 public final class AtomicIntMap<K> extends AbstractIntMap<K> {
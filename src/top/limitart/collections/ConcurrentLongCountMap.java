@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+
+import top.limitart.base.Conditions;
+import top.limitart.base.ThreadSafe;
+import top.limitart.util.GameMathUtil;
+
+/**
+ * 以long(或int)为键的并发计数Map
+ * <p>
+ * 按键的哈希分成若干段，每段一把锁，段内是开放寻址(线性探测)的原始类型数组，计数时不装箱也不创建节点对象。
+ * 每段维护自己的计数和，{@link #sum()}只需累加各段
+ *
+ * @author hank
+ * @see StripedLongMap
+ */
+@ThreadSafe
+public class ConcurrentLongCountMap {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private final Segment[] segments;
+
+    public ConcurrentLongCountMap() {
+        this(16, 64);
+    }
+
+    /**
+     * @param concurrency     并发度(段数，向上取2的幂)
+     * @param initialCapacity 初始容量
+     */
+    public ConcurrentLongCountMap(int concurrency, int initialCapacity) {
+        Conditions.positive(concurrency);
+        Conditions.positive(initialCapacity);
+        int count = powerOfTwo(Math.min(concurrency, 1 << 16));
+        int capacity = powerOfTwo(Math.max(4, initialCapacity / count * 2));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; ++i) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * 获取计数
+     *
+     * @param key
+     * @return
+     */
+    public long getCount(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * 是否有此键
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).contains(key, hash);
+    }
+
+    /**
+     * 设置计数
+     *
+     * @param key
+     * @param newValue
+     * @return 原计数
+     */
+    public long putCount(long key, long newValue) {
+        long hash = hash(key);
+        return segmentFor(hash).update(key, hash, newValue, false);
+    }
+
+    /**
+     * 获取并增加
+     *
+     * @param key
+     * @param delta
+     * @return 原计数
+     */
+    public long getAndAdd(long key, long delta) {
+        long hash = hash(key);
+        return segmentFor(hash).update(key, hash, delta, true);
+    }
+
+    /**
+     * 增加并获取
+     *
+     * @param key
+     * @param delta
+     * @return
+     */
+    public long addAndGet(long key, long delta) {
+        return GameMathUtil.safeAdd(getAndAdd(key, delta), delta);
+    }
+
+    /**
+     * 加1并获取
+     *
+     * @param key
+     * @return
+     */
+    public long incrementAndGet(long key) {
+        return addAndGet(key, 1L);
+    }
+
+    /**
+     * 减1并获取
+     *
+     * @param key
+     * @return
+     */
+    public long decrementAndGet(long key) {
+        return addAndGet(key, -1L);
+    }
+
+    /**
+     * 移除并返回计数
+     *
+     * @param key
+     * @return
+     */
+    public long remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * 计数总和
+     *
+     * @return
+     */
+    public long sum() {
+        long sum = 0;
+        for (Segment segment : segments) {
+            sum += segment.sum;
+        }
+        return sum;
+    }
+
+    /**
+     * 键的数量
+     *
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前计数的快照(逐段加锁复制，段之间不保证是同一时刻)
+     *
+     * @return
+     */
+    public LongMap<Long> snapshot() {
+        LongMap<Long> snapshot = new HashedLongMap<>();
+        for (Segment segment : segments) {
+            segment.copyTo(snapshot);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentLongCountMap{size=" + size() + ",sum=" + sum() + "}";
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 48) & (segments.length - 1)];
+    }
+
+    private static long hash(long key) {
+        long h = key * GOLDEN;
+        return h ^ (h >>> 29);
+    }
+
+    private static int powerOfTwo(int value) {
+        int n = Integer.highestOneBit(value);
+        return n == value ? n : n << 1;
+    }
+
+    /**
+     * 一段，键0单独存放，数组中0表示空槽
+     */
+    private static final class Segment {
+        private long[] keys;
+        private long[] values;
+        private boolean hasZero;
+        private long zeroValue;
+        private volatile int size;
+        private volatile long sum;
+
+        private Segment(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+        }
+
+        private synchronized long get(long key, long hash) {
+            if (key == 0) {
+                return zeroValue;
+            }
+            int slot = find(key, hash);
+            return slot < 0 ? 0L : values[slot];
+        }
+
+        private synchronized boolean contains(long key, long hash) {
+            return key == 0 ? hasZero : find(key, hash) >= 0;
+        }
+
+        /**
+         * 更新计数
+         *
+         * @param key
+         * @param hash
+         * @param value 增量或新值
+         * @param add   是否为增量
+         * @return 原计数
+         */
+        private synchronized long update(long key, long hash, long value, boolean add) {
+            long oldValue;
+            long newValue;
+            if (key == 0) {
+                if (!hasZero) {
+                    hasZero = true;
+                    ++size;
+                }
+                oldValue = zeroValue;
+                newValue = add ? GameMathUtil.safeAdd(oldValue, value) : value;
+                zeroValue = newValue;
+            } else {
+                int slot = find(key, hash);
+                if (slot < 0) {
+                    if ((size + 1) * 4 > keys.length * 3) {
+                        resize();
+                    }
+                    slot = insert(key, hash);
+                    ++size;
+                }
+                oldValue = values[slot];
+                newValue = add ? GameMathUtil.safeAdd(oldValue, value) : value;
+                values[slot] = newValue;
+            }
+            sum += newValue - oldValue;
+            return oldValue;
+        }
+
+        private synchronized long remove(long key, long hash) {
+            long oldValue;
+            if (key == 0) {
+                if (!hasZero) {
+                    return 0L;
+                }
+                oldValue = zeroValue;
+                hasZero = false;
+                zeroValue = 0;
+            } else {
+                int slot = find(key, hash);
+                if (slot < 0) {
+                    return 0L;
+                }
+                oldValue = values[slot];
+                removeAt(slot);
+            }
+            --size;
+            sum -= oldValue;
+            return oldValue;
+        }
+
+        private synchronized void clear() {
+            keys = new long[keys.length];
+            values = new long[values.length];
+            hasZero = false;
+            zeroValue = 0;
+            size = 0;
+            sum = 0;
+        }
+
+        private synchronized void copyTo(LongMap<Long> map) {
+            if (hasZero) {
+                map.putCount(0L, zeroValue);
+            }
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] != 0) {
+                    map.putCount(keys[i], values[i]);
+                }
+            }
+        }
+
+        private int find(long key, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            long current;
+            while ((current = keys[slot]) != 0) {
+                if (current == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long key, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new long[oldValues.length << 1];
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != 0) {
+                    values[insert(oldKeys[i], hash(oldKeys[i]))] = oldValues[i];
+                }
+            }
+        }
+
+        /**
+         * 删除后把后面同一探测链上的元素往前移，不留墓碑
+         *
+         * @param slot
+         */
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = (slot + 1) & mask;
+            long current;
+            while ((current = keys[i]) != 0) {
+                int ideal = (int) hash(current) & mask;
+                if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = current;
+                    values[hole] = values[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[hole] = 0;
+            values[hole] = 0;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import top.limitart.base.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 跨线程排行结构
+ * <p>
+ * 排行存放在不可变的持久化Treap中，写入时只复制被修改的路径(O(log n)个节点)并发布新的根，写入之间互斥；
+ * 读取只拿一次当前根，在这个版本上完成整个查询，不加锁也不会被写入阻塞，一次查询内看到的名次和范围是一致的。
+ * 读取线程拿到的是与写入线程共享的V对象，跨线程使用时建议用{@link #replaceOrPut(RankObj)}放入新对象，
+ * 而不是用{@link #update(Object, Proc1)}原地修改
+ *
+ * @param <K>
+ * @param <V>
+ * @author hank
+ */
+@ThreadSafe
+public class ConcurrentRankMap<K, V extends RankMap.RankObj<K>> implements RankMap<K, V> {
+    private final Map<K, V> map;
+    private final Comparator<V> comparator;
+    private final int capacity;
+    private volatile Node<V> root;
+    private int seed = 0x2545F491;
+
+    public static <K, V extends RankMap.RankObj<K>> ConcurrentRankMap<K, V> create(@NotNull Comparator<V> comparator, int capacity) {
+        return new ConcurrentRankMap<>(comparator, capacity);
+    }
+
+    public static <K, V extends RankMap.RankObj<K>> ConcurrentRankMap<K, V> create(@NotNull Comparator<V> comparator) {
+        return new ConcurrentRankMap<>(comparator, 0);
+    }
+
+    private ConcurrentRankMap(@NotNull Comparator<V> comparator, int capacity) {
+        this.comparator = Conditions.notNull(comparator, "comparator");
+        this.map = new ConcurrentHashMap<>();
+        this.capacity = capacity;
+    }
+
+    @Override
+    public V get(@NotNull K key) {
+        return map.get(key);
+    }
+
+    @Override
+    public synchronized void replaceOrPut(V value) {
+        Conditions.notNull(value, "value");
+        K key = value.key();
+        V old = map.get(key);
+        Node<V> newRoot = root;
+        if (old != null) {
+            Conditions.args(value != old, "can not put the same object(same hash):%s", value);
+            if (comparator.compare(value, old) == 0) {
+                return;
+            }
+            newRoot = delete(newRoot, old);
+        }
+        map.put(key, value);
+        root = trim(insert(newRoot, new Node<>(value, nextPriority(), null, null)));
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public synchronized V remove(@NotNull K key) {
+        V old = map.remove(key);
+        if (old != null) {
+            root = delete(root, old);
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized void update(K key, Proc1<V> consumer) {
+        V old = map.get(key);
+        Conditions.args(old != null, "key(%s) putIfAbsent first!", key);
+        // 先发布不含老值的版本，新的读取不会在错误的位置上遇到正在修改的值
+        root = delete(root, old);
+        try {
+            consumer.run(old);
+        } finally {
+            root = insert(root, new Node<>(old, nextPriority(), null, null));
+        }
+    }
+
+    @Override
+    public synchronized void putIfAbsent(V value) {
+        Conditions.notNull(value, "value");
+        if (map.containsKey(value.key())) {
+            return;
+        }
+        map.put(value.key(), value);
+        root = trim(insert(root, new Node<>(value, nextPriority(), null, null)));
+    }
+
+    @Override
+    public synchronized void updateOrPut(K key, Proc1<V> consumer, Func<V> instance) {
+        if (!containsKey(key)) {
+            V newInstance = instance.run();
+            consumer.run(newInstance);
+            putIfAbsent(newInstance);
+        } else {
+            update(key, consumer);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        root = null;
+        map.clear();
+    }
+
+    @Override
+    public synchronized void load(List<V> values) {
+        List<V> sorted = RankTree.sortForLoad(values, comparator, capacity);
+        int[] priorities = RankTree.balancedPriorities(sorted.size(), this::nextPriority);
+        Node<V> loaded = build(sorted, priorities, 0, sorted.size() - 1);
+        // 先放入新值再发布新版本，最后移除不在新版本中的key，读线程不会看到空的映射
+        Set<K> keys = new HashSet<>();
+        for (V value : sorted) {
+            map.put(value.key(), value);
+            keys.add(value.key());
+        }
+        root = loaded;
+        map.keySet().retainAll(keys);
+    }
+
+    private static <V> Node<V> build(List<V> sorted, int[] priorities, int low, int high) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        return new Node<>(sorted.get(mid), priorities[mid], build(sorted, priorities, low, mid - 1),
+                build(sorted, priorities, mid + 1, high));
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * 名次，值与排行版本不一致时(正在被写入)返回它在读取到的版本中应处的位置
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public int getIndex(@NotNull K key) {
+        V v = map.get(key);
+        if (v == null) {
+            return -1;
+        }
+        int rank = 0;
+        Node<V> node = root;
+        while (node != null) {
+            if (node.value == v) {
+                return rank + size(node.left);
+            }
+            if (compare(v, node.value) < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    @Override
+    public List<V> getAll() {
+        Node<V> snapshot = root;
+        List<V> all = new ArrayList<>(size(snapshot));
+        range(snapshot, 0, size(snapshot) - 1, all);
+        return all;
+    }
+
+    @Override
+    public List<V> getRange(int startIndex, int endIndex) {
+        Node<V> snapshot = root;
+        List<V> temp = new ArrayList<>();
+        int start = startIndex;
+        int end = endIndex + 1;
+        int size = size(snapshot);
+        if (size == 0) {
+            return temp;
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        if (end < start) {
+            end = start;
+        }
+        if (end >= size) {
+            end = size;
+        }
+        if (start == end) {
+            end = start + 1;
+        }
+        range(snapshot, start, end - 1, temp);
+        return temp;
+    }
+
+    @Override
+    public V getAt(int at) {
+        Node<V> node = root;
+        if (at < 0 || at >= size(node)) {
+            return null;
+        }
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (at < leftSize) {
+                node = node.left;
+            } else if (at == leftSize) {
+                return node.value;
+            } else {
+                at -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return getAll().toString();
+    }
+
+    private int compare(V a, V b) {
+        int cmp = comparator.compare(a, b);
+        if (cmp == 0) {
+            cmp = a.compareKey(b.key());
+        }
+        return cmp;
+    }
+
+    private Node<V> trim(Node<V> node) {
+        while (capacity > 0 && size(node) > capacity) {
+            Node<V> last = node;
+            while (last.right != null) {
+                last = last.right;
+            }
+            map.remove(last.value.key());
+            node = delete(node, last.value);
+        }
+        return node;
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> leaf) {
+        if (node == null) {
+            return leaf;
+        }
+        if (leaf.priority < node.priority) {
+            Node<V>[] split = split(node, leaf.value);
+            return new Node<>(leaf.value, leaf.priority, split[0], split[1]);
+        }
+        if (compare(leaf.value, node.value) < 0) {
+            return new Node<>(node.value, node.priority, insert(node.left, leaf), node.right);
+        }
+        return new Node<>(node.value, node.priority, node.left, insert(node.right, leaf));
+    }
+
+    private Node<V> delete(Node<V> node, V value) {
+        if (node == null) {
+            throw new IllegalStateException("can not find pos,maybe change the value without this map???");
+        }
+        if (node.value == value) {
+            return merge(node.left, node.right);
+        }
+        if (compare(value, node.value) < 0) {
+            return new Node<>(node.value, node.priority, delete(node.left, value), node.right);
+        }
+        return new Node<>(node.value, node.priority, node.left, delete(node.right, value));
+    }
+
+    /**
+     * 拆成小于value和不小于value的两部分
+     */
+    @SuppressWarnings("unchecked")
+    private Node<V>[] split(Node<V> node, V value) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node<V>[] split;
+        if (compare(node.value, value) < 0) {
+            split = split(node.right, value);
+            split[0] = new Node<>(node.value, node.priority, node.left, split[0]);
+        } else {
+            split = split(node.left, value);
+            split[1] = new Node<>(node.value, node.priority, split[1], node.right);
+        }
+        return split;
+    }
+
+    /**
+     * 合并，a中所有值都排在b前面
+     */
+    private static <V> Node<V> merge(Node<V> a, Node<V> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority < b.priority) {
+            return new Node<>(a.value, a.priority, a.left, merge(a.right, b));
+        }
+        return new Node<>(b.value, b.priority, merge(a, b.left), b.right);
+    }
+
+    private static <V> void range(Node<V> node, int start, int end, List<V> out) {
+        if (node == null || start > end) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (start < leftSize) {
+            range(node.left, start, Math.min(end, leftSize - 1), out);
+        }
+        if (start <= leftSize && leftSize <= end) {
+            out.add(node.value);
+        }
+        if (end > leftSize) {
+            range(node.right, Math.max(0, start - leftSize - 1), end - leftSize - 1, out);
+        }
+    }
+
+    private int nextPriority() {
+        // xorshift
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * 不可变节点
+     */
+    private static final class Node<V> {
+        private final V value;
+        private final int priority;
+        private final Node<V> left;
+        private final Node<V> right;
+        private final int size;
+
+        private Node(V value, int priority, Node<V> left, Node<V> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+}
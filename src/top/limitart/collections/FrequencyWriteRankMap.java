@@ -1,178 +1,300 @@
-///*
-// * Copyright (c) 2016-present The Limitart Project
-// *
-// * Licensed under the Apache License, Version 2.0 (the "License");
-// * you may not use this file except in compliance with the License.
-// * You may obtain a copy of the License at
-// *
-// *   http://www.apache.org/licenses/LICENSE-2.0
-// *
-// * Unless required by applicable law or agreed to in writing, software
-// * distributed under the License is distributed on an "AS IS" BASIS,
-// * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// * See the License for the specific language governing permissions and
-// * limitations under the License.
-// */
-//package org.slingerxv.limitart.collections;
-//
-//import Conditions;
-//import Func;
-//import NotNull;
-//import ThreadUnsafe;
-//
-//import java.util.*;
-//
-///**
-// * 高频率写入排行结构 主要用于写入频率远远大于读取频率
-// *
-// * @param <K>
-// * @param <V>
-// * @author hank
-// */
-//@ThreadUnsafe
-//public class FrequencyWriteRankMap<K, V extends Func<K>> implements RankMap<K, V> {
-//    private final TreeSet<V> treeSet;
-//    private final Map<K, V> map;
-//    private final Comparator<V> comparator;
-//    private final int capacity;
-//    private List<V> indexList;
-//    private boolean modified = false;
-//
-//    public FrequencyWriteRankMap(@NotNull Comparator<V> comparator, int capacity) {
-//        Conditions.args(capacity > 0);
-//        this.treeSet = new TreeSet<>(comparator);
-//        this.map = new HashMap<>(capacity);
-//        this.comparator = Conditions.notNull(comparator, "comparator");
-//        this.capacity = capacity;
-//    }
-//
-//    @Override
-//    public V get(K key) {
-//        return map.get(key);
-//    }
-//
-//    @Override
-//    public V put(@NotNull K key, @NotNull V value) {
-//        Conditions.notNull(key, "key");
-//        Conditions.notNull(value, "value");
-//        if (map.containsKey(key)) {
-//            V obj = map.get(key);
-//            // 比较新数据与老数据大小
-//            if (comparator.compare(value, obj) == 0) {
-//                return null;
-//            }
-//            // 因为防止老对象被更改值，所以要删除一次
-//            treeSet.remove(obj);
-//        }
-//        map.put(key, value);
-//        treeSet.add(value);
-//        modified = true;
-//        // 清理排行最后的数据
-//        while (map.size() > capacity) {
-//            V pollLast = treeSet.pollLast();
-//            map.remove(Conditions.notNull(pollLast.run()));
-//        }
-//        return value;
-//    }
-//
-//    @Override
-//    public V remove(@NotNull K key) {
-//        V remove = map.remove(key);
-//        if (remove != null) {
-//            treeSet.remove(remove);
-//        }
-//        return remove;
-//    }
-//
-//    @Override
-//    public void clear() {
-//        treeSet.clear();
-//        map.clear();
-//        indexList = null;
-//        modified = true;
-//    }
-//
-//    @Override
-//    public int size() {
-//        return map.size();
-//    }
-//
-//    @Override
-//    public int getIndex(K key) {
-//        if (!this.map.containsKey(key)) {
-//            return -1;
-//        }
-//        V v = map.get(key);
-//        checkModified();
-//        return Collections.binarySearch(indexList, v, this.comparator);
-//    }
-//
-//    @Override
-//    public List<V> getAll() {
-//        checkModified();
-//        return new ArrayList<>(indexList);
-//    }
-//
-//    @Override
-//    public List<V> getRange(int startIndex, int endIndex) {
-//        List<V> temp = new ArrayList<>();
-//        int size = size();
-//        int start = startIndex;
-//        int end = endIndex + 1;
-//        if (size == 0) {
-//            return temp;
-//        }
-//        if (start < 0) {
-//            start = 0;
-//        }
-//        if (end < start) {
-//            end = start;
-//        }
-//        if (end >= size) {
-//            end = size;
-//        }
-//        if (start == end) {
-//            V at = getAt(start);
-//            if (at != null) {
-//                temp.add(at);
-//            }
-//            return temp;
-//        }
-//        checkModified();
-//        return indexList.subList(start, end);
-//    }
-//
-//    @Override
-//    public V getAt(int at) {
-//        int size = size();
-//        if (size == 0) {
-//            return null;
-//        }
-//        if (at < 0) {
-//            return null;
-//        }
-//        if (at >= size) {
-//            return null;
-//        }
-//        if (at == 0) {
-//            return treeSet.first();
-//        }
-//        if (at == size() - 1) {
-//            return treeSet.last();
-//        }
-//        checkModified();
-//        return indexList.get(at);
-//    }
-//
-//    @Override
-//    public String toString() {
-//        return treeSet.toString();
-//    }
-//
-//    private void checkModified() {
-//        if (modified) {
-//            modified = false;
-//            indexList = new ArrayList<>(treeSet);
-//        }
-//    }
-//}
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import top.limitart.base.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 高频率写入排行结构 主要用于写入频率远远大于读取频率
+ * <p>
+ * 写入只记录每个键的最新值，攒够一批或距上次合并超过间隔时，把这一批排序后与已发布的排行做一次线性归并，重新发布排行。
+ * 名次相关的读取({@link #size()}、{@link #getIndex(Object)}、{@link #getRange(int, int)}等)来自上次发布的排行，
+ * 最多落后一个批次；{@link #get(Object)}和{@link #containsKey(Object)}总是最新的。需要立即生效时调用{@link #flush()}
+ *
+ * @param <K>
+ * @param <V>
+ * @author hank
+ */
+@ThreadUnsafe
+public class FrequencyWriteRankMap<K, V extends RankMap.RankObj<K>> implements RankMap<K, V> {
+    private final Map<K, V> latest = new HashMap<>();
+    private final Map<K, V> pending = new HashMap<>();
+    private final Comparator<V> comparator;
+    private final int capacity;
+    private final int batchSize;
+    private final long intervalNanos;
+    private List<V> ranking = new ArrayList<>();
+    private Map<K, Integer> indexes = new HashMap<>();
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * 创建
+     *
+     * @param comparator
+     * @param capacity   最大容量，小于等于0不限制
+     * @param batchSize  攒够多少个键的修改合并一次
+     * @param interval   距上次合并超过多久合并一次(读写时检查)，小于等于0只按数量合并
+     * @param unit
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public static <K, V extends RankMap.RankObj<K>> FrequencyWriteRankMap<K, V> create(@NotNull Comparator<V> comparator, int capacity,
+                                                                                      int batchSize, long interval, TimeUnit unit) {
+        return new FrequencyWriteRankMap<>(comparator, capacity, batchSize, interval, unit);
+    }
+
+    private FrequencyWriteRankMap(@NotNull Comparator<V> comparator, int capacity, int batchSize, long interval, TimeUnit unit) {
+        Conditions.positive(batchSize);
+        this.comparator = Conditions.notNull(comparator, "comparator");
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    @Override
+    public V get(@NotNull K key) {
+        return latest.get(key);
+    }
+
+    @Override
+    public void replaceOrPut(V value) {
+        Conditions.notNull(value, "value");
+        K key = value.key();
+        V old = latest.get(key);
+        if (old != null) {
+            Conditions.args(value != old, "can not put the same object(same hash):%s", value);
+            if (comparator.compare(value, old) == 0) {
+                return;
+            }
+        }
+        write(key, value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return latest.containsKey(key);
+    }
+
+    @Override
+    public V remove(@NotNull K key) {
+        V old = latest.get(key);
+        if (old != null) {
+            write(key, null);
+        }
+        return old;
+    }
+
+    @Override
+    public void update(K key, Proc1<V> consumer) {
+        V old = latest.get(key);
+        Conditions.args(old != null, "key(%s) putIfAbsent first!", key);
+        consumer.run(old);
+        write(key, old);
+    }
+
+    @Override
+    public void putIfAbsent(V value) {
+        Conditions.notNull(value, "value");
+        if (latest.containsKey(value.key())) {
+            return;
+        }
+        write(value.key(), value);
+    }
+
+    @Override
+    public void updateOrPut(K key, Proc1<V> consumer, Func<V> instance) {
+        if (!containsKey(key)) {
+            V newInstance = instance.run();
+            consumer.run(newInstance);
+            putIfAbsent(newInstance);
+        } else {
+            update(key, consumer);
+        }
+    }
+
+    @Override
+    public void clear() {
+        latest.clear();
+        pending.clear();
+        ranking = new ArrayList<>();
+        indexes = new HashMap<>();
+        lastFlush = System.nanoTime();
+    }
+
+    @Override
+    public void load(List<V> values) {
+        List<V> sorted = RankTree.sortForLoad(values, comparator, capacity);
+        clear();
+        for (V value : sorted) {
+            latest.put(value.key(), value);
+        }
+        publish(sorted);
+    }
+
+    @Override
+    public int size() {
+        checkInterval();
+        return ranking.size();
+    }
+
+    @Override
+    public int getIndex(@NotNull K key) {
+        checkInterval();
+        Integer index = indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public List<V> getAll() {
+        checkInterval();
+        return new ArrayList<>(ranking);
+    }
+
+    @Override
+    public List<V> getRange(int startIndex, int endIndex) {
+        checkInterval();
+        List<V> temp = new ArrayList<>();
+        int start = startIndex;
+        int end = endIndex + 1;
+        int size = ranking.size();
+        if (size == 0) {
+            return temp;
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        if (end < start) {
+            end = start;
+        }
+        if (end >= size) {
+            end = size;
+        }
+        if (start == end) {
+            V at = getAt(start);
+            if (at != null) {
+                temp.add(at);
+            }
+            return temp;
+        }
+        temp.addAll(ranking.subList(start, end));
+        return temp;
+    }
+
+    @Override
+    public V getAt(int at) {
+        checkInterval();
+        if (at < 0 || at >= ranking.size()) {
+            return null;
+        }
+        return ranking.get(at);
+    }
+
+    /**
+     * 等待合并的键数量
+     *
+     * @return
+     */
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * 立即合并所有修改并发布排行
+     */
+    public void flush() {
+        lastFlush = System.nanoTime();
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<V> batch = new ArrayList<>(pending.size());
+        for (V value : pending.values()) {
+            if (value != null) {
+                batch.add(value);
+            }
+        }
+        batch.sort(this::compare);
+        List<V> merged = new ArrayList<>(ranking.size() + batch.size());
+        int i = 0;
+        int j = 0;
+        while (i < ranking.size() || j < batch.size()) {
+            V old = i < ranking.size() ? ranking.get(i) : null;
+            // 这一批修改过的键以批次中的新值为准
+            if (old != null && pending.containsKey(old.key())) {
+                ++i;
+                continue;
+            }
+            V fresh = j < batch.size() ? batch.get(j) : null;
+            if (fresh == null || (old != null && compare(old, fresh) <= 0)) {
+                merged.add(old);
+                ++i;
+            } else {
+                merged.add(fresh);
+                ++j;
+            }
+        }
+        pending.clear();
+        while (capacity > 0 && merged.size() > capacity) {
+            latest.remove(merged.remove(merged.size() - 1).key());
+        }
+        publish(merged);
+    }
+
+    private void publish(List<V> sorted) {
+        Map<K, Integer> newIndexes = new HashMap<>(sorted.size() * 4 / 3 + 1);
+        for (int index = 0; index < sorted.size(); ++index) {
+            newIndexes.put(sorted.get(index).key(), index);
+        }
+        ranking = sorted;
+        indexes = newIndexes;
+    }
+
+    @Override
+    public String toString() {
+        return ranking.toString();
+    }
+
+    private void write(K key, V value) {
+        if (value == null) {
+            latest.remove(key);
+        } else {
+            latest.put(key, value);
+        }
+        pending.put(key, value);
+        if (pending.size() >= batchSize) {
+            flush();
+        } else {
+            checkInterval();
+        }
+    }
+
+    private void checkInterval() {
+        if (intervalNanos > 0 && !pending.isEmpty() && System.nanoTime() - lastFlush >= intervalNanos) {
+            flush();
+        }
+    }
+
+    private int compare(V a, V b) {
+        int cmp = comparator.compare(a, b);
+        if (cmp == 0) {
+            cmp = a.compareKey(b.key());
+        }
+        return cmp;
+    }
+}
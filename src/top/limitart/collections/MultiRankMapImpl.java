@@ -8,14 +8,17 @@ import java.util.*;
 
 /**
  * 复合排行Map
+ * <p>
+ * 每个比较器一棵顺序统计树({@link RankTree})，每个键一个条目，持有它在各棵树中的节点。
+ * 更新时只在k棵树上各删除、插入一次，O(k·log n)，节点复用不重新分配
  *
  * @author hank
  * @version 2018/4/17 0017 16:41
  */
 public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiRankMap<K, V> {
-    private final Map<K, V> map;
-    private final Map<Comparator<V>, List<V>> list;
-    private Comparator<V> first;
+    private final Map<K, Entry<V>> map;
+    private final Map<Comparator<V>, Integer> indexes;
+    private final List<RankTree<K, V>> trees;
 
     @SafeVarargs
     public static <K, V extends RankMap.RankObj<K>> MultiRankMapImpl<K, V> create(Comparator<V>... comparators) {
@@ -26,50 +29,52 @@ public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiR
     private MultiRankMapImpl(Comparator<V>... comparators) {
         Conditions.args(
                 comparators != null && comparators.length > 0, "comparators needed!");
-        list = new HashMap<>();
+        indexes = new HashMap<>();
+        trees = new ArrayList<>(comparators.length);
         map = new HashMap<>();
-        for (Comparator comparator : comparators) {
+        for (Comparator<V> comparator : comparators) {
             Conditions.args(
-                    !list.containsKey(comparator), "comparator duplicated:%s", comparator);
-            if (first != null) {
-                first = comparator;
-            }
-            list.put(comparator, new ArrayList<>());
+                    !indexes.containsKey(comparator), "comparator duplicated:%s", comparator);
+            indexes.put(comparator, trees.size());
+            trees.add(new RankTree<>(comparator));
         }
     }
 
     @Override
     public void clear() {
         map.clear();
-        list.values().forEach(List::clear);
+        trees.forEach(RankTree::clear);
     }
 
     @Override
     public V get(K key) {
-        return map.get(key);
+        Entry<V> entry = map.get(key);
+        return entry == null ? null : entry.value;
     }
 
     @Override
     public void replaceOrPut(V value) {
         Conditions.notNull(value, "value");
-        K key = value.key();
-        if (map.containsKey(key)) {
-            V obj = map.get(key);
-            Conditions.args(value != obj, "can not put the same object(same hash):%s", value);
-            // 比较新数据与老数据大小
-            for (Map.Entry<Comparator<V>, List<V>> entry : list.entrySet()) {
-                Comparator<V> comparator = entry.getKey();
-                List<V> list = entry.getValue();
-                int compare = comparator.compare(value, obj);
-                if (compare == 0) {
-                    continue;
-                }
-                // 因为防止老对象被更改值，所以要删除一次
-                listRemove(comparator, list, obj);
+        Entry<V> entry = map.get(value.key());
+        if (entry == null) {
+            putIfAbsent(value);
+            return;
+        }
+        V old = entry.value;
+        Conditions.args(value != old, "can not put the same object(same hash):%s", value);
+        entry.value = value;
+        for (int i = 0; i < trees.size(); ++i) {
+            RankTree<K, V> tree = trees.get(i);
+            RankTree.Node<V> node = entry.nodes[i];
+            // 这个比较器下名次不变，只换值
+            if (tree.compare(value, old) == 0) {
+                node.value = value;
+                continue;
             }
-            map.remove(key);
+            tree.remove(node);
+            node.value = value;
+            tree.insertNode(node);
         }
-        putIfAbsent(value);
     }
 
     @Override
@@ -79,21 +84,31 @@ public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiR
 
     @Override
     public V remove(K key) {
-        V remove = map.remove(key);
-        if (remove != null) {
-            list.forEach((c, l) -> listRemove(c, l, remove));
+        Entry<V> remove = map.remove(key);
+        if (remove == null) {
+            return null;
+        }
+        for (int i = 0; i < trees.size(); ++i) {
+            trees.get(i).remove(remove.nodes[i]);
         }
-        return remove;
+        return remove.value;
     }
 
     @Override
     public void update(K key, Proc1<V> consumer) {
-        V old = map.get(key);
-        Conditions.notNull(old, "key(%s) pufIfAbsent first!", key);
-        // 在更新前先找到老值的位置
-        list.forEach((c, l) -> listRemove(c, l, old));
-        consumer.run(old);
-        list.forEach((c, l) -> l.add(binarySearch(c, l, old, true), old));
+        Entry<V> entry = map.get(key);
+        Conditions.args(entry != null, "key(%s) pufIfAbsent first!", key);
+        // 在更新前先从所有树上摘下
+        for (int i = 0; i < trees.size(); ++i) {
+            trees.get(i).remove(entry.nodes[i]);
+        }
+        try {
+            consumer.run(entry.value);
+        } finally {
+            for (int i = 0; i < trees.size(); ++i) {
+                trees.get(i).insertNode(entry.nodes[i]);
+            }
+        }
     }
 
     @Override
@@ -102,17 +117,11 @@ public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiR
         if (map.containsKey(value.key())) {
             return;
         }
-//        Conditions.args(!map.containsKey(value.key()), "key duplicated:%s", value.key());
-        map.put(value.key(), value);
-        list.forEach(
-                (c, l) -> {
-                    int binarySearch = 0;
-                    // 这里必须要用列表的size而不是map的size
-                    if (l.size() > 0) {
-                        binarySearch = binarySearch(c, l, value, true);
-                    }
-                    l.add(binarySearch, value);
-                });
+        Entry<V> entry = new Entry<>(value, trees.size());
+        for (int i = 0; i < trees.size(); ++i) {
+            entry.nodes[i] = trees.get(i).insert(value);
+        }
+        map.put(value.key(), entry);
     }
 
     @Override
@@ -133,21 +142,21 @@ public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiR
 
     @Override
     public int getIndex(Comparator<V> comparator, K key) {
-        if (!this.map.containsKey(key)) {
+        int index = indexOf(comparator);
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
             return -1;
         }
-        V v = map.get(key);
-        return binarySearch(comparator, list.get(comparator), v, false);
+        return trees.get(index).rank(entry.nodes[index]);
     }
 
     @Override
     public List<V> getRange(Comparator<V> comparator, int startIndex, int endIndex) {
-        List<V> vs = list.get(comparator);
-        Conditions.notNull(vs, "comparator not exist", comparator);
+        RankTree<K, V> tree = trees.get(indexOf(comparator));
         List<V> temp = new ArrayList<>();
         int start = startIndex;
         int end = endIndex + 1;
-        int size = vs.size();
+        int size = tree.size();
         if (size == 0) {
             return temp;
         }
@@ -167,58 +176,41 @@ public class MultiRankMapImpl<K, V extends RankMap.RankObj<K>> implements MultiR
             }
             return temp;
         }
-        temp.addAll(vs.subList(start, end));
+        tree.range(start, end - 1, temp);
         return temp;
     }
 
     @Override
     public List<V> getAll(Comparator<V> comparator) {
-        List<V> vs = list.get(comparator);
-        Conditions.notNull(vs, "comparator not exist", comparator);
-        return new ArrayList<>(vs);
+        RankTree<K, V> tree = trees.get(indexOf(comparator));
+        List<V> all = new ArrayList<>(tree.size());
+        tree.toList(all);
+        return all;
     }
 
     @Override
     public V getAt(Comparator<V> comparator, int at) {
-        List<V> vs = list.get(comparator);
-        Conditions.notNull(vs, "comparator not exist", comparator);
-        int size = vs.size();
-        if (size == 0) {
-            return null;
-        }
-        if (at < 0) {
-            return null;
-        }
-        if (at >= size) {
-            return null;
-        }
-        return vs.get(at);
+        RankTree.Node<V> node = trees.get(indexOf(comparator)).nodeAt(at);
+        return node == null ? null : node.value;
     }
 
-    private void listRemove(Comparator<V> comparator, List<V> list, V old) {
-        int i = binarySearch(comparator, list, old, false);
-        V remove = list.remove(i);
-        Conditions.args(
-                old == remove, "remove obj not equals,comparator or key comparator must be error!");
-    }
-
-    private int binarySearch(Comparator<V> comparator, List<V> list, V v, boolean similar) {
-        int low = 0;
-        int high = list.size() - 1;
-        while (low <= high) {
-            int mid = (low + high) >>> 1;
-            V midVal = list.get(mid);
-            int cmp = comparator.compare(midVal, v);
-            if (cmp == 0) {
-                cmp = midVal.compareKey(v.key());
-            }
-            if (cmp < 0) low = mid + 1;
-            else if (cmp > 0) high = mid - 1;
-            else return mid;
-        }
-        if (similar) {
-            return low;
+    private int indexOf(Comparator<V> comparator) {
+        Integer index = indexes.get(comparator);
+        Conditions.notNull(index, "comparator not exist", comparator);
+        return index;
+    }
+
+    /**
+     * 一个键的条目，nodes[i]是它在第i棵树中的节点
+     */
+    private static final class Entry<V> {
+        private V value;
+        private final RankTree.Node<V>[] nodes;
+
+        @SuppressWarnings("unchecked")
+        private Entry(V value, int size) {
+            this.value = value;
+            this.nodes = new RankTree.Node[size];
         }
-        throw new IllegalStateException("can not find pos,maybe change the value without this map???");
     }
 }
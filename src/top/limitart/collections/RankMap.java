@@ -22,6 +22,7 @@ import top.limitart.base.Proc1;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -40,6 +41,57 @@ public interface RankMap<K, V extends RankMap.RankObj<K>> {
         return RankMapImpl.create(comparator);
     }
 
+    /**
+     * 基于顺序统计树的实现，写入频繁的大排行榜使用
+     *
+     * @param comparator
+     * @param capacity   最大容量，小于等于0不限制
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    static <K, V extends RankObj<K>> RankMap<K, V> createTree(@NotNull Comparator<V> comparator, int capacity) {
+        return TreeRankMap.create(comparator, capacity);
+    }
+
+    static <K, V extends RankObj<K>> RankMap<K, V> createTree(@NotNull Comparator<V> comparator) {
+        return TreeRankMap.create(comparator);
+    }
+
+    /**
+     * 线程安全的实现，读取不加锁，写入之间互斥
+     *
+     * @param comparator
+     * @param capacity   最大容量，小于等于0不限制
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    static <K, V extends RankObj<K>> RankMap<K, V> createConcurrent(@NotNull Comparator<V> comparator, int capacity) {
+        return ConcurrentRankMap.create(comparator, capacity);
+    }
+
+    static <K, V extends RankObj<K>> RankMap<K, V> createConcurrent(@NotNull Comparator<V> comparator) {
+        return ConcurrentRankMap.create(comparator);
+    }
+
+    /**
+     * 批量合并写入的实现，名次读取来自上次合并的结果
+     *
+     * @param comparator
+     * @param capacity   最大容量，小于等于0不限制
+     * @param batchSize  攒够多少个键的修改合并一次
+     * @param interval   最长合并间隔，小于等于0只按数量合并
+     * @param unit
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    static <K, V extends RankObj<K>> RankMap<K, V> createFrequencyWrite(@NotNull Comparator<V> comparator, int capacity,
+                                                                        int batchSize, long interval, TimeUnit unit) {
+        return FrequencyWriteRankMap.create(comparator, capacity, batchSize, interval, unit);
+    }
+
     interface RankObj<K> {
         K key();
 
@@ -157,4 +209,17 @@ public interface RankMap<K, V extends RankMap.RankObj<K>> {
      */
     void clear();
 
+    /**
+     * 清空后批量载入，默认逐个插入
+     * 内置实现在已按本排行顺序排好时直接建立结构，不再逐个插入(否则先整体排序一次)，超出容量的部分丢弃，有重复的key时不做任何修改直接抛异常
+     *
+     * @param values
+     */
+    default void load(@NotNull List<V> values) {
+        clear();
+        for (V value : values) {
+            putIfAbsent(value);
+        }
+    }
+
 }
\ No newline at end of file
@@ -134,6 +134,16 @@ public class RankMapImpl<K, V extends RankMap.RankObj<K>> implements RankMap<K,
         map.clear();
     }
 
+    @Override
+    public void load(List<V> values) {
+        List<V> sorted = RankTree.sortForLoad(values, comparator, capacity);
+        clear();
+        for (V value : sorted) {
+            map.put(value.key(), value);
+        }
+        list.addAll(sorted);
+    }
+
     @Override
     public int size() {
         return list.size();
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import top.limitart.base.Conditions;
+import top.limitart.base.ThreadUnsafe;
+import top.limitart.net.binary.BinaryMessageCodecException;
+import top.limitart.net.binary.BinaryMeta;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 排行榜持久化
+ * <p>
+ * 快照按名次顺序把所有值用{@link BinaryMeta}编码写入快照文件，载入时按已排好的顺序用{@link RankMap#load(List)}直接建立结构，
+ * 不再逐个插入。快照之后的每次修改用{@link #logPut(BinaryMeta)}、{@link #logRemove(BinaryMeta)}追加到更新日志，
+ * 启动时{@link #recover(RankMap)}载入快照再按顺序重放日志。{@link #checkpoint(RankMap)}写新快照(先写临时文件再原子替换)后清空日志，
+ * 替换后清空前崩溃的话，在新快照上重放整份旧日志结果不变
+ *
+ * @param <K>
+ * @param <V> 排行的值，需要能用{@link BinaryMeta}编解码
+ * @author hank
+ */
+@ThreadUnsafe
+public class RankMapStore<K, V extends BinaryMeta & RankMap.RankObj<K>> implements Closeable {
+    private static final int MAGIC = 0x4C524E4B;
+    private static final byte VERSION = 1;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Class<V> clazz;
+    private final BinaryMeta carrier = new BinaryMeta();
+    private final ByteBuf record = Unpooled.buffer(256);
+    private final FileChannel log;
+
+    /**
+     * @param dir   存放目录
+     * @param name  排行名称，对应name.snapshot和name.log两个文件
+     * @param clazz 值的类型
+     * @throws IOException
+     */
+    public RankMapStore(File dir, String name, Class<V> clazz) throws IOException {
+        Conditions.notNull(dir, "dir");
+        Conditions.notNull(name, "name");
+        this.clazz = Conditions.notNull(clazz, "clazz");
+        Files.createDirectories(dir.toPath());
+        this.snapshotFile = dir.toPath().resolve(name + ".snapshot");
+        this.logFile = dir.toPath().resolve(name + ".log");
+        this.log = FileChannel.open(logFile, CREATE, READ, WRITE);
+        this.log.position(log.size());
+    }
+
+    /**
+     * 载入快照并重放日志
+     *
+     * @param map
+     * @return 重放的日志条数
+     * @throws IOException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public int recover(RankMap<K, V> map) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        map.load(readSnapshot());
+        return replay(map);
+    }
+
+    /**
+     * 读取快照中的值(按名次顺序)，没有快照时为空
+     *
+     * @return
+     * @throws IOException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public List<V> readSnapshot() throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        if (!Files.exists(snapshotFile)) {
+            return new ArrayList<>();
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, READ)) {
+            // 读到堆内存，不保留映射，否则部分系统上之后无法替换快照文件
+            ByteBuf buffer = Unpooled.wrappedBuffer(readFully(channel));
+            if (buffer.readableBytes() < 9 || buffer.readInt() != MAGIC) {
+                throw new IOException("not a rank map snapshot:" + snapshotFile);
+            }
+            byte version = buffer.readByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ":" + snapshotFile);
+            }
+            int count = buffer.readInt();
+            List<V> values = new ArrayList<>(count);
+            carrier.buffer(buffer);
+            try {
+                for (int i = 0; i < count; ++i) {
+                    values.add(carrier.getMessageMeta(clazz));
+                }
+            } finally {
+                carrier.buffer(null);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * 记录放入或更新
+     *
+     * @param value
+     * @throws IOException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public void logPut(V value) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        append(OP_PUT, value);
+    }
+
+    /**
+     * 记录删除
+     *
+     * @param value 被删除的值
+     * @throws IOException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public void logRemove(V value) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        append(OP_REMOVE, value);
+    }
+
+    /**
+     * 把日志刷到磁盘
+     *
+     * @throws IOException
+     */
+    public void sync() throws IOException {
+        log.force(false);
+    }
+
+    /**
+     * 写入新快照并清空日志
+     *
+     * @param map
+     * @throws IOException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public void checkpoint(RankMap<K, V> map) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        List<V> values = map.getAll();
+        ByteBuf buffer = Unpooled.buffer(9 + values.size() * 16);
+        try {
+            buffer.writeInt(MAGIC);
+            buffer.writeByte(VERSION);
+            buffer.writeInt(values.size());
+            for (V value : values) {
+                encode(buffer, value);
+            }
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                ByteBuffer nio = buffer.nioBuffer();
+                while (nio.hasRemaining()) {
+                    channel.write(nio);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, snapshotFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            buffer.release();
+        }
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+        record.release();
+    }
+
+    private int replay(RankMap<K, V> map) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        long size = log.size();
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuf buffer = Unpooled.wrappedBuffer(readFully(log));
+        int count = 0;
+        int valid = 0;
+        carrier.buffer(buffer);
+        try {
+            while (buffer.readableBytes() >= 4) {
+                int length = buffer.readInt();
+                // 最后一条可能只写了一半
+                if (length <= 0 || buffer.readableBytes() < length) {
+                    break;
+                }
+                int end = buffer.readerIndex() + length;
+                byte op = buffer.readByte();
+                V value = carrier.getMessageMeta(clazz);
+                if (buffer.readerIndex() != end || value == null) {
+                    throw new IOException("rank map log corrupted at " + valid + ":" + logFile);
+                }
+                if (op == OP_PUT) {
+                    map.replaceOrPut(value);
+                } else if (op == OP_REMOVE) {
+                    map.remove(value.key());
+                } else {
+                    throw new IOException("unknown rank map log op " + op + " at " + valid + ":" + logFile);
+                }
+                ++count;
+                valid = end;
+            }
+        } finally {
+            carrier.buffer(null);
+        }
+        if (valid < size) {
+            log.truncate(valid);
+        }
+        log.position(valid);
+        return count;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+        while (content.hasRemaining()) {
+            if (channel.read(content, content.position()) < 0) {
+                break;
+            }
+        }
+        content.flip();
+        return content;
+    }
+
+    private void append(byte op, V value) throws IOException, IllegalAccessException, BinaryMessageCodecException {
+        Conditions.notNull(value, "value");
+        record.clear();
+        record.writeInt(0);
+        record.writeByte(op);
+        encode(record, value);
+        record.setInt(0, record.readableBytes() - 4);
+        ByteBuffer nio = record.nioBuffer();
+        while (nio.hasRemaining()) {
+            log.write(nio);
+        }
+    }
+
+    private void encode(ByteBuf buffer, V value) throws IllegalAccessException, BinaryMessageCodecException {
+        ByteBuf old = value.buffer();
+        carrier.buffer(buffer);
+        try {
+            carrier.putMessageMeta(value);
+        } finally {
+            carrier.buffer(null);
+            value.buffer(old);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import top.limitart.base.Conditions;
+import top.limitart.base.ThreadUnsafe;
+
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * 顺序统计树(带子树大小的Treap)
+ * <p>
+ * 比较器相等时用{@link RankMap.RankObj#compareKey(Object)}区分，插入、删除、按名次查找、求名次都是O(log n)。
+ * 删除和求名次直接从节点沿父指针操作，不依赖节点值，值在树外被修改也不会找不到
+ *
+ * @param <K>
+ * @param <V>
+ * @author hank
+ */
+@ThreadUnsafe
+class RankTree<K, V extends RankMap.RankObj<K>> {
+    private final Comparator<V> comparator;
+    private Node<V> root;
+    private int seed = 0x2545F491;
+
+    RankTree(Comparator<V> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * 插入新值
+     *
+     * @param value
+     * @return 值所在节点
+     */
+    Node<V> insert(V value) {
+        Node<V> node = new Node<>(value);
+        insertNode(node);
+        return node;
+    }
+
+    /**
+     * 重新插入一个已删除的节点(值更新后复用节点)
+     *
+     * @param node
+     */
+    void insertNode(Node<V> node) {
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.size = 1;
+        node.priority = nextPriority();
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node<V> current = root;
+        while (true) {
+            ++current.size;
+            if (compare(node.value, current.value) < 0) {
+                if (current.left == null) {
+                    current.left = node;
+                    break;
+                }
+                current = current.left;
+            } else {
+                if (current.right == null) {
+                    current.right = node;
+                    break;
+                }
+                current = current.right;
+            }
+        }
+        node.parent = current;
+        while (node.parent != null && node.priority < node.parent.priority) {
+            rotateUp(node);
+        }
+    }
+
+    /**
+     * 清空后用已排好序的值直接建立平衡的树
+     *
+     * @param sorted
+     * @return 按顺序排列的节点
+     */
+    List<Node<V>> build(List<V> sorted) {
+        List<Node<V>> nodes = new ArrayList<>(sorted.size());
+        for (V value : sorted) {
+            nodes.add(new Node<>(value));
+        }
+        int[] priorities = balancedPriorities(nodes.size(), this::nextPriority);
+        root = link(nodes, priorities, 0, nodes.size() - 1, null);
+        return nodes;
+    }
+
+    private Node<V> link(List<Node<V>> nodes, int[] priorities, int low, int high, Node<V> parent) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        Node<V> node = nodes.get(mid);
+        node.parent = parent;
+        node.priority = priorities[mid];
+        node.left = link(nodes, priorities, low, mid - 1, node);
+        node.right = link(nodes, priorities, mid + 1, high, node);
+        node.size = high - low + 1;
+        return node;
+    }
+
+    /**
+     * 删除节点
+     *
+     * @param node
+     */
+    void remove(Node<V> node) {
+        while (node.left != null && node.right != null) {
+            rotateUp(node.left.priority < node.right.priority ? node.left : node.right);
+        }
+        Node<V> child = node.left != null ? node.left : node.right;
+        Node<V> parent = node.parent;
+        if (child != null) {
+            child.parent = parent;
+        }
+        if (parent == null) {
+            root = child;
+        } else if (parent.left == node) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        for (Node<V> p = parent; p != null; p = p.parent) {
+            --p.size;
+        }
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+    }
+
+    /**
+     * 节点的名次(从0开始)
+     *
+     * @param node
+     * @return
+     */
+    int rank(Node<V> node) {
+        int rank = size(node.left);
+        for (Node<V> x = node; x.parent != null; x = x.parent) {
+            if (x == x.parent.right) {
+                rank += size(x.parent.left) + 1;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * 指定名次的节点
+     *
+     * @param index
+     * @return 越界为null
+     */
+    Node<V> nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            return null;
+        }
+        Node<V> current = root;
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最后一名
+     *
+     * @return
+     */
+    Node<V> last() {
+        Node<V> current = root;
+        while (current != null && current.right != null) {
+            current = current.right;
+        }
+        return current;
+    }
+
+    /**
+     * 取出名次范围内的值
+     *
+     * @param start 包含
+     * @param end   包含
+     * @param out
+     */
+    void range(int start, int end, List<V> out) {
+        Node<V> node = nodeAt(start);
+        for (int i = start; i <= end && node != null; ++i) {
+            out.add(node.value);
+            node = successor(node);
+        }
+    }
+
+    /**
+     * 按顺序取出所有值
+     *
+     * @param out
+     */
+    void toList(List<V> out) {
+        range(0, size() - 1, out);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    int compare(V a, V b) {
+        int cmp = comparator.compare(a, b);
+        if (cmp == 0) {
+            cmp = a.compareKey(b.key());
+        }
+        return cmp;
+    }
+
+    /**
+     * 批量载入前整理：未按排行顺序排好时排序，超出容量的部分截掉，有重复的key时抛异常(在修改排行之前检查)
+     *
+     * @param values
+     * @param comparator
+     * @param capacity   小于等于0不限制
+     * @param <K>
+     * @param <V>
+     * @return 新列表
+     */
+    static <K, V extends RankMap.RankObj<K>> List<V> sortForLoad(Collection<V> values, Comparator<V> comparator, int capacity) {
+        Comparator<V> order = (a, b) -> {
+            int cmp = comparator.compare(a, b);
+            return cmp != 0 ? cmp : a.compareKey(b.key());
+        };
+        List<V> sorted = new ArrayList<>(values);
+        for (int i = 1; i < sorted.size(); ++i) {
+            if (order.compare(sorted.get(i - 1), sorted.get(i)) >= 0) {
+                sorted.sort(order);
+                break;
+            }
+        }
+        if (capacity > 0 && sorted.size() > capacity) {
+            sorted = new ArrayList<>(sorted.subList(0, capacity));
+        }
+        Set<K> keys = new HashSet<>();
+        for (V value : sorted) {
+            Conditions.args(keys.add(value.key()), "key duplicated:%s", value.key());
+        }
+        return sorted;
+    }
+
+    /**
+     * 为完全平衡的树分配优先级：随机数排序后按层序分给各个位置，父节点总是小于子节点
+     *
+     * @param size
+     * @param random
+     * @return 按中序位置排列的优先级
+     */
+    static int[] balancedPriorities(int size, IntSupplier random) {
+        int[] randoms = new int[size];
+        for (int i = 0; i < size; ++i) {
+            randoms[i] = random.getAsInt();
+        }
+        Arrays.sort(randoms);
+        int[] priorities = new int[size];
+        int next = 0;
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.add(new int[]{0, size - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            if (range[0] > range[1]) {
+                continue;
+            }
+            int mid = (range[0] + range[1]) >>> 1;
+            priorities[mid] = randoms[next++];
+            ranges.add(new int[]{range[0], mid - 1});
+            ranges.add(new int[]{mid + 1, range[1]});
+        }
+        return priorities;
+    }
+
+    private static <V> Node<V> successor(Node<V> node) {
+        if (node.right != null) {
+            Node<V> current = node.right;
+            while (current.left != null) {
+                current = current.left;
+            }
+            return current;
+        }
+        Node<V> current = node;
+        while (current.parent != null && current == current.parent.right) {
+            current = current.parent;
+        }
+        return current.parent;
+    }
+
+    private void rotateUp(Node<V> node) {
+        Node<V> parent = node.parent;
+        Node<V> grand = parent.parent;
+        if (node == parent.left) {
+            parent.left = node.right;
+            if (node.right != null) {
+                node.right.parent = parent;
+            }
+            node.right = parent;
+        } else {
+            parent.right = node.left;
+            if (node.left != null) {
+                node.left.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        node.parent = grand;
+        if (grand == null) {
+            root = node;
+        } else if (grand.left == parent) {
+            grand.left = node;
+        } else {
+            grand.right = node;
+        }
+        node.size = parent.size;
+        parent.size = size(parent.left) + size(parent.right) + 1;
+    }
+
+    private int nextPriority() {
+        // xorshift
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    static final class Node<V> {
+        V value;
+        private Node<V> left;
+        private Node<V> right;
+        private Node<V> parent;
+        private int size = 1;
+        private int priority;
+
+        private Node(V value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+}
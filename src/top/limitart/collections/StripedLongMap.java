@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+
+import top.limitart.base.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分段累加计数Map
+ * <p>
+ * 每个键一个{@link LongAdder}，多线程同时累加同一个键时分散到不同的槽上，不装箱、不加锁也不锁哈希桶。
+ * 适合全服击杀数、活动累计这类写多读少的计数。
+ * 单个键的值只在没有并发写入时才是精确的，和移除并发的累加可能落在已移除的计数上而丢失，需要先读后改的原子操作请使用{@link AtomicLongMap}。
+ * {@link #sum()}直接汇总各键的计数，不单独维护总数，所以总和和各键之和不会产生偏差
+ *
+ * @param <K>
+ * @author hank
+ * @see ConcurrentLongCountMap
+ */
+@ThreadSafe
+public class StripedLongMap<K> {
+    private final Map<K, LongAdder> cells = new ConcurrentHashMap<>();
+
+    /**
+     * 增加计数
+     *
+     * @param key
+     * @param delta
+     */
+    public void add(K key, long delta) {
+        LongAdder cell = cells.get(key);
+        if (cell == null) {
+            cell = cells.computeIfAbsent(key, k -> new LongAdder());
+        }
+        cell.add(delta);
+    }
+
+    /**
+     * 加1
+     *
+     * @param key
+     */
+    public void increment(K key) {
+        add(key, 1L);
+    }
+
+    /**
+     * 减1
+     *
+     * @param key
+     */
+    public void decrement(K key) {
+        add(key, -1L);
+    }
+
+    /**
+     * 获取计数
+     *
+     * @param key
+     * @return
+     */
+    public long getCount(K key) {
+        LongAdder cell = cells.get(key);
+        return cell == null ? 0L : cell.sum();
+    }
+
+    /**
+     * 计数总和(遍历所有键)
+     *
+     * @return
+     */
+    public long sum() {
+        long sum = 0;
+        for (LongAdder cell : cells.values()) {
+            sum += cell.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * 移除并返回计数
+     *
+     * @param key
+     * @return
+     */
+    public long remove(K key) {
+        LongAdder cell = cells.remove(key);
+        return cell == null ? 0L : cell.sum();
+    }
+
+    /**
+     * 键的数量
+     *
+     * @return
+     */
+    public int size() {
+        return cells.size();
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        cells.clear();
+    }
+
+    /**
+     * 当前计数的快照
+     *
+     * @return
+     */
+    public LongMap<K> snapshot() {
+        LongMap<K> snapshot = new HashedLongMap<>();
+        cells.forEach((key, cell) -> snapshot.putCount(key, cell.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "StripedLongMap{size=" + size() + ",sum=" + sum() + "}";
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import top.limitart.base.*;
+
+import java.util.*;
+
+/**
+ * 高频率写入的大排行结构
+ * <p>
+ * 基于顺序统计树({@link RankTree})，更新、删除、求名次、按名次取值都是O(log n)，适合数十万条目且写入频繁的排行榜。
+ * 只读取头部的小排行榜用{@link RankMapImpl}更省内存
+ *
+ * @param <K>
+ * @param <V>
+ * @author hank
+ */
+@ThreadUnsafe
+public class TreeRankMap<K, V extends RankMap.RankObj<K>> implements RankMap<K, V> {
+    private final Map<K, RankTree.Node<V>> map;
+    private final RankTree<K, V> tree;
+    private final Comparator<V> comparator;
+    private final int capacity;
+
+    public static <K, V extends RankMap.RankObj<K>> TreeRankMap<K, V> create(@NotNull Comparator<V> comparator, int capacity) {
+        return new TreeRankMap<>(comparator, capacity);
+    }
+
+    public static <K, V extends RankMap.RankObj<K>> TreeRankMap<K, V> create(@NotNull Comparator<V> comparator) {
+        return new TreeRankMap<>(comparator, 0);
+    }
+
+    private TreeRankMap(@NotNull Comparator<V> comparator, int capacity) {
+        this.comparator = Conditions.notNull(comparator, "comparator");
+        this.map = new HashMap<>();
+        this.tree = new RankTree<>(comparator);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public V get(@NotNull K key) {
+        RankTree.Node<V> node = map.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public void replaceOrPut(V value) {
+        Conditions.notNull(value, "value");
+        K key = value.key();
+        RankTree.Node<V> node = map.get(key);
+        if (node != null) {
+            Conditions.args(value != node.value, "can not put the same object(same hash):%s", value);
+            if (comparator.compare(value, node.value) == 0) {
+                return;
+            }
+            tree.remove(node);
+            map.remove(key);
+        }
+        putIfAbsent(value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V remove(@NotNull K key) {
+        RankTree.Node<V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        tree.remove(node);
+        return node.value;
+    }
+
+    @Override
+    public void update(K key, Proc1<V> consumer) {
+        RankTree.Node<V> node = map.get(key);
+        Conditions.args(node != null, "key(%s) putIfAbsent first!", key);
+        tree.remove(node);
+        try {
+            consumer.run(node.value);
+        } finally {
+            tree.insertNode(node);
+        }
+    }
+
+    @Override
+    public void putIfAbsent(V value) {
+        Conditions.notNull(value, "value");
+        if (map.containsKey(value.key())) {
+            return;
+        }
+        map.put(value.key(), tree.insert(value));
+        while (capacity > 0 && map.size() > capacity) {
+            RankTree.Node<V> last = tree.last();
+            tree.remove(last);
+            map.remove(last.value.key());
+        }
+    }
+
+    @Override
+    public void updateOrPut(K key, Proc1<V> consumer, Func<V> instance) {
+        if (!containsKey(key)) {
+            V newInstance = instance.run();
+            consumer.run(newInstance);
+            putIfAbsent(newInstance);
+        } else {
+            update(key, consumer);
+        }
+    }
+
+    @Override
+    public void clear() {
+        tree.clear();
+        map.clear();
+    }
+
+    @Override
+    public void load(List<V> values) {
+        List<V> sorted = RankTree.sortForLoad(values, comparator, capacity);
+        clear();
+        for (RankTree.Node<V> node : tree.build(sorted)) {
+            map.put(node.value.key(), node);
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public int getIndex(@NotNull K key) {
+        RankTree.Node<V> node = map.get(key);
+        return node == null ? -1 : tree.rank(node);
+    }
+
+    @Override
+    public List<V> getAll() {
+        List<V> all = new ArrayList<>(size());
+        tree.toList(all);
+        return all;
+    }
+
+    @Override
+    public List<V> getRange(int startIndex, int endIndex) {
+        List<V> temp = new ArrayList<>();
+        int start = startIndex;
+        int end = endIndex + 1;
+        int size = size();
+        if (size == 0) {
+            return temp;
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        if (end < start) {
+            end = start;
+        }
+        if (end >= size) {
+            end = size;
+        }
+        if (start == end) {
+            V at = getAt(start);
+            if (at != null) {
+                temp.add(at);
+            }
+            return temp;
+        }
+        tree.range(start, end - 1, temp);
+        return temp;
+    }
+
+    @Override
+    public V getAt(int at) {
+        RankTree.Node<V> node = tree.nodeAt(at);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public String toString() {
+        return getAll().toString();
+    }
+}
@@ -16,6 +16,16 @@
 package top.limitart.concurrent;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.Func;
+import top.limitart.base.Proc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -24,12 +34,22 @@ import java.util.concurrent.*;
  * @author hank
  */
 public abstract class AbstractTaskQueue implements TaskQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTaskQueue.class);
     private static final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory() {
         @Override
         public String namePrefix() {
             return "task-queue-scheduler";
         }
     });
+    // 一次批次结束最多处理推迟任务的轮数
+    private static final int MAX_BATCH_END_ROUNDS = 16;
+    private static final Runnable WAKE_UP = () -> {
+    };
+    private final List<Proc> batchEndListeners = new CopyOnWriteArrayList<>();
+    // 只在队列线程访问
+    private Set<Runnable> deferred = new LinkedHashSet<>();
+    private Set<Runnable> deferredSwap = new LinkedHashSet<>();
+    private TaskQueueMetrics metrics;
 
 
     @Override
@@ -67,4 +87,92 @@ public abstract class AbstractTaskQueue implements TaskQueue {
         execute(futureTask);
         return futureTask;
     }
+
+    @Override
+    public TaskQueueMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * 登记统计(子类构造时调用)
+     *
+     * @param name              队列名称
+     * @param depth             积压任务数
+     * @param remainingCapacity 剩余容量
+     */
+    protected void registerMetrics(String name, Func<Long> depth, Func<Long> remainingCapacity) {
+        this.metrics = TaskQueueMetrics.register(name, depth, remainingCapacity);
+    }
+
+    /**
+     * 注销统计(子类关闭时调用)
+     */
+    protected void unregisterMetrics() {
+        if (metrics != null) {
+            TaskQueueMetrics.unregister(metrics);
+        }
+    }
+
+    @Override
+    public void addBatchEndListener(Proc listener) {
+        Conditions.notNull(listener, "listener");
+        batchEndListeners.add(listener);
+    }
+
+    @Override
+    public void removeBatchEndListener(Proc listener) {
+        batchEndListeners.remove(listener);
+    }
+
+    @Override
+    public void deferToBatchEnd(Runnable task) {
+        Conditions.notNull(task, "task");
+        Conditions.sameThread(thread(), "deferToBatchEnd must be called in task queue thread %s", thread().getName());
+        deferred.add(task);
+    }
+
+    /**
+     * 批次结束，由队列线程在处理完一批任务后调用
+     */
+    protected void batchEnd() {
+        // 推迟的任务或监听器可能再推迟新的任务，队列空闲时不会再有下一批，所以在这里循环到没有推迟任务为止
+        int rounds = 0;
+        do {
+            runDeferred();
+            for (Proc listener : batchEndListeners) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    LOGGER.error("batch end listener error", e);
+                }
+            }
+        } while (!deferred.isEmpty() && ++rounds < MAX_BATCH_END_ROUNDS);
+        if (!deferred.isEmpty()) {
+            // 超过轮数上限，从外部线程投递一个空任务保证还有下一批(在队列线程投递可能被直接执行)
+            scheduledExecutorService.execute(() -> {
+                try {
+                    tryExecute(WAKE_UP);
+                } catch (Exception e) {
+                    LOGGER.error("batch end wake up error", e);
+                }
+            });
+        }
+    }
+
+    private void runDeferred() {
+        if (deferred.isEmpty()) {
+            return;
+        }
+        Set<Runnable> tasks = deferred;
+        deferred = deferredSwap;
+        deferredSwap = tasks;
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.error("deferred task error", e);
+            }
+        }
+        tasks.clear();
+    }
 }
@@ -33,6 +33,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * @author Hank
  * @see TaskQueueGroup
+ * @see BalancedTaskQueueGroup
  * @deprecated 在游戏中实际上不需要很频繁的创建销毁线程，所以这个东西并不适用，而且不优雅
  */
 @ThreadSafe
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.Func1;
+import top.limitart.base.ThreadSafe;
+import top.limitart.collections.ConcurrentHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 负载均衡消息队列组
+ * <p>
+ * 记录每个队列积压的任务数和最近的忙碌比例，新实体分配到负载最低的队列，并可以把实体从繁忙的队列迁移到空闲的队列。
+ * 迁移时先在原队列上排一个屏障任务，屏障之前投递的任务全部在原队列执行完后，期间缓存的任务才按顺序转到新队列，保证实体的任务顺序不变
+ *
+ * @author hank
+ * @see TaskQueueGroup
+ */
+@ThreadSafe
+public class BalancedTaskQueueGroup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalancedTaskQueueGroup.class);
+    // 积压一个任务折算的忙碌比例
+    private static final double PENDING_WEIGHT = 0.001;
+    // 最近忙碌比例的平滑系数
+    private static final double EWMA_ALPHA = 0.5;
+    private final Lane[] lanes;
+    private long lastSampleTime = System.nanoTime();
+
+    public BalancedTaskQueueGroup(String groupName, Func1<String, TaskQueue> taskQueueFactory) {
+        this(groupName, Runtime.getRuntime().availableProcessors() * 2, taskQueueFactory);
+    }
+
+    public BalancedTaskQueueGroup(String groupName, int num, Func1<String, TaskQueue> taskQueueFactory) {
+        Conditions.positive(num);
+        lanes = new Lane[num];
+        for (int i = 0; i < lanes.length; i++) {
+            TaskQueue taskQueue = taskQueueFactory.run(groupName + "-" + i);
+            Conditions.notNull(taskQueue);
+            lanes[i] = new Lane(taskQueue);
+        }
+    }
+
+    /**
+     * 注册一个实体，分配到当前负载最低的队列
+     *
+     * @return
+     */
+    public Member register() {
+        Lane lane = coldest();
+        Member member = new Member(lane);
+        lane.members.add(member);
+        return member;
+    }
+
+    /**
+     * 注销实体(之后投递的任务仍会在最后所在的队列执行)
+     *
+     * @param member
+     */
+    public void unregister(Member member) {
+        Conditions.notNull(member, "member");
+        synchronized (member) {
+            // 正在迁移时屏障不再把它加入目标队列
+            member.unregistered = true;
+            member.lane.members.remove(member);
+        }
+    }
+
+    /**
+     * 把实体迁移到指定队列
+     *
+     * @param member
+     * @param target 必须是本组的队列
+     * @return 已经在目标队列或正在迁移时返回false
+     */
+    public boolean migrate(Member member, TaskQueue target) {
+        Conditions.notNull(member, "member");
+        Lane to = laneOf(target);
+        Conditions.notNull(to, "target is not in this group");
+        Lane from;
+        synchronized (member) {
+            if (member.migrating != null || member.lane == to) {
+                return false;
+            }
+            from = member.lane;
+            member.migrating = new ArrayList<>();
+        }
+        Runnable barrier = () -> barrier(member, from, to);
+        if (from.queue.thread() == Thread.currentThread()) {
+            // 在原队列线程上投递会直接执行，交给其他线程投递，让屏障排在已有任务之后
+            ForkJoinPool.commonPool().execute(() -> from.queue.execute(barrier));
+        } else {
+            from.queue.execute(barrier);
+        }
+        return true;
+    }
+
+    /**
+     * 屏障:原队列中之前的任务都执行完后再切换
+     *
+     * @param member
+     * @param from
+     * @param to
+     */
+    private void barrier(Member member, Lane from, Lane to) {
+        synchronized (member) {
+            if (member.submitting > 0) {
+                // 还有任务正在投递到原队列，等最后一个投递完再排一次屏障
+                member.pendingBarrier = () -> barrier(member, from, to);
+                return;
+            }
+            from.members.remove(member);
+            if (!member.unregistered) {
+                to.members.add(member);
+            }
+            member.lane = to;
+        }
+        LOGGER.info("migrate member from {} to {}", from.queue.thread().getName(), to.queue.thread().getName());
+        member.flush(to);
+    }
+
+    /**
+     * 采样各队列和实体最近的忙碌比例，需要定期调用(如每秒)
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleTime;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastSampleTime = now;
+        for (Lane lane : lanes) {
+            long busy = lane.busyNanos;
+            lane.utilization = ewma(lane.utilization, (busy - lane.sampledBusy) / (double) elapsed);
+            lane.sampledBusy = busy;
+            for (Member member : lane.members) {
+                long memberBusy = member.busyNanos;
+                member.utilization = ewma(member.utilization, (memberBusy - member.sampledBusy) / (double) elapsed);
+                member.sampledBusy = memberBusy;
+            }
+        }
+    }
+
+    /**
+     * 采样后如果最忙和最闲队列的负载差超过阈值，把一个实体从最忙的队列迁移到最闲的队列
+     * 选择负载最接近差值一半的实体，避免只是把热点换了个位置
+     *
+     * @param threshold 负载差阈值(忙碌比例，0~1)
+     * @return 是否发生迁移
+     */
+    public synchronized boolean rebalance(double threshold) {
+        sample();
+        Lane hot = hottest();
+        Lane cold = coldest();
+        double diff = hot.load() - cold.load();
+        if (hot == cold || diff <= threshold || hot.members.size() <= 1) {
+            return false;
+        }
+        Member candidate = null;
+        double best = Double.MAX_VALUE;
+        for (Member member : hot.members) {
+            if (member.utilization >= diff) {
+                continue;
+            }
+            double distance = Math.abs(member.utilization - diff / 2);
+            if (distance < best) {
+                best = distance;
+                candidate = member;
+            }
+        }
+        return candidate != null && migrate(candidate, cold.queue);
+    }
+
+    /**
+     * 负载最低的队列
+     *
+     * @return
+     */
+    public TaskQueue coldestQueue() {
+        return coldest().queue;
+    }
+
+    /**
+     * 负载最高的队列
+     *
+     * @return
+     */
+    public TaskQueue hottestQueue() {
+        return hottest().queue;
+    }
+
+    /**
+     * 队列当前负载(最近忙碌比例 + 积压任务数折算)
+     *
+     * @param queue
+     * @return
+     */
+    public double load(TaskQueue queue) {
+        Lane lane = laneOf(queue);
+        Conditions.notNull(lane, "queue is not in this group");
+        return lane.load();
+    }
+
+    /**
+     * 线程数量
+     *
+     * @return
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    /**
+     * 队列上登记的实体数
+     *
+     * @param queue
+     * @return
+     */
+    int memberCount(TaskQueue queue) {
+        Lane lane = laneOf(queue);
+        Conditions.notNull(lane, "queue is not in this group");
+        return lane.members.size();
+    }
+
+    private Lane coldest() {
+        Lane result = lanes[0];
+        for (int i = 1; i < lanes.length; ++i) {
+            if (compare(lanes[i], result) < 0) {
+                result = lanes[i];
+            }
+        }
+        return result;
+    }
+
+    private Lane hottest() {
+        Lane result = lanes[0];
+        for (int i = 1; i < lanes.length; ++i) {
+            if (compare(lanes[i], result) > 0) {
+                result = lanes[i];
+            }
+        }
+        return result;
+    }
+
+    private static int compare(Lane a, Lane b) {
+        int result = Double.compare(a.load(), b.load());
+        return result != 0 ? result : Integer.compare(a.members.size(), b.members.size());
+    }
+
+    private Lane laneOf(TaskQueue queue) {
+        for (Lane lane : lanes) {
+            if (lane.queue == queue) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private static double ewma(double old, double sample) {
+        return old + EWMA_ALPHA * (sample - old);
+    }
+
+    /**
+     * 组中的实体，通过它投递的任务总在它当前所在的队列上按顺序执行
+     */
+    public static class Member implements Executor {
+        private volatile Lane lane;
+        // 非空表示正在迁移，缓存期间投递的任务
+        private List<Runnable> migrating;
+        // 正在投递到当前队列(锁外)的任务数
+        private int submitting;
+        // 屏障执行时还有任务在投递，由最后一个投递的线程重新排队
+        private Runnable pendingBarrier;
+        private boolean unregistered;
+        private volatile long busyNanos;
+        private long sampledBusy;
+        private volatile double utilization;
+
+        private Member(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            Conditions.notNull(command, "command");
+            Lane target;
+            synchronized (this) {
+                if (migrating != null) {
+                    migrating.add(command);
+                    return;
+                }
+                target = lane;
+                ++submitting;
+            }
+            // 投递可能因为队列满而阻塞，不能持有锁
+            try {
+                target.submit(this, command);
+            } finally {
+                Runnable barrier = null;
+                synchronized (this) {
+                    if (--submitting == 0) {
+                        barrier = pendingBarrier;
+                        pendingBarrier = null;
+                    }
+                }
+                if (barrier != null) {
+                    target.queue.execute(barrier);
+                }
+            }
+        }
+
+        /**
+         * 切换队列后按顺序转交迁移期间缓存的任务，转交时不持有锁，期间新投递的任务继续缓存
+         *
+         * @param to
+         */
+        private void flush(Lane to) {
+            while (true) {
+                List<Runnable> buffered;
+                synchronized (this) {
+                    buffered = migrating;
+                    if (buffered.isEmpty()) {
+                        migrating = null;
+                        return;
+                    }
+                    migrating = new ArrayList<>();
+                }
+                for (Runnable task : buffered) {
+                    to.submit(this, task);
+                }
+            }
+        }
+
+        /**
+         * 当前所在队列
+         *
+         * @return
+         */
+        public TaskQueue queue() {
+            return lane.queue;
+        }
+
+        /**
+         * 是否正在迁移
+         *
+         * @return
+         */
+        public synchronized boolean migrating() {
+            return migrating != null;
+        }
+
+        /**
+         * 最近的忙碌比例
+         *
+         * @return
+         */
+        public double utilization() {
+            return utilization;
+        }
+    }
+
+    private static class Lane {
+        private final TaskQueue queue;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Set<Member> members = new ConcurrentHashSet<>();
+        // 只在队列线程写
+        private volatile long busyNanos;
+        private long sampledBusy;
+        private volatile double utilization;
+
+        private Lane(TaskQueue queue) {
+            this.queue = queue;
+        }
+
+        private double load() {
+            return utilization + pending.get() * PENDING_WEIGHT;
+        }
+
+        private void submit(Member member, Runnable task) {
+            pending.incrementAndGet();
+            try {
+                queue.execute(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        task.run();
+                    } finally {
+                        long cost = System.nanoTime() - start;
+                        busyNanos += cost;
+                        member.busyNanos += cost;
+                        pending.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                pending.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+}
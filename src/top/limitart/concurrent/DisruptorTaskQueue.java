@@ -15,25 +15,55 @@
  */
 package top.limitart.concurrent;
 
-import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutHandler;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import top.limitart.base.*;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 
 /**
  * 消息队列线程
+ * <p>
+ * 定时任务放在消费线程独占的{@link TimerWheel}中，每处理完一批任务或空闲等待超时(一格时长)时推进，到期后直接在消费线程上执行。
+ * RingBuffer满时按{@link TaskQueueOverflowPolicy}处理，默认阻塞投递线程
  *
  * @author Hank
  */
 public class DisruptorTaskQueue extends AbstractTaskQueue {
     private static final Logger LOGGER = LoggerFactory.getLogger(DisruptorTaskQueue.class);
-    private final Disruptor<Holder<Runnable>> disruptor;
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+    private static final EventTranslatorOneArg<TaskEvent, Runnable> TRANSLATOR = (event, sequence, runnable) -> {
+        event.task = runnable;
+        event.enqueueTime = System.nanoTime();
+    };
+    private static final EventTranslator<TaskEvent> WAKE_UP = (event, sequence) -> {
+    };
+    private final Disruptor<TaskEvent> disruptor;
     private final SingletonThreadFactory threadFactory;
+    private final ProducerType producerType;
+    private final TimerWheel timerWheel = new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+    private final Queue<TaskQueueMetrics.TimedTask> overflowQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private volatile TaskQueueOverflowPolicy overflowPolicy = TaskQueueOverflowPolicy.BLOCK;
+    private volatile long overflowTimeoutNanos;
     private Proc3<Runnable, Throwable, Long> exception;
+    private Proc1<Runnable> rejected;
 
     public static DisruptorTaskQueue create(String threadName) {
         return new DisruptorTaskQueue(threadName);
@@ -44,18 +74,40 @@ public class DisruptorTaskQueue extends AbstractTaskQueue {
         return new DisruptorTaskQueue(threadName, bufferSize);
     }
 
+    /**
+     * 创建
+     *
+     * @param threadName
+     * @param bufferSize   指定RingBuffer的大小
+     * @param waitStrategy 等待策略
+     * @param producerType 生产者类型，{@link ProducerType#SINGLE}要求只有一个线程投递任务(包括定时任务)
+     * @return
+     */
+    public static DisruptorTaskQueue create(String threadName, int bufferSize, TaskQueueWaitStrategy waitStrategy, ProducerType producerType) {
+        return new DisruptorTaskQueue(threadName, bufferSize, waitStrategy, producerType);
+    }
+
     private DisruptorTaskQueue(String threadName) {
         this(threadName, 2 << 12);// 4096
     }
 
+    private DisruptorTaskQueue(String threadName, int bufferSize) {
+        this(threadName, bufferSize, TaskQueueWaitStrategy.BLOCKING, ProducerType.MULTI);
+    }
+
     /**
      * 构造函数
      *
      * @param threadName
-     * @param bufferSize 指定RingBuffer的大小
+     * @param bufferSize   指定RingBuffer的大小
+     * @param waitStrategy 等待策略
+     * @param producerType 生产者类型
      */
     @SuppressWarnings("unchecked")
-    private DisruptorTaskQueue(String threadName, int bufferSize) {
+    private DisruptorTaskQueue(String threadName, int bufferSize, TaskQueueWaitStrategy waitStrategy, ProducerType producerType) {
+        Conditions.notNull(waitStrategy, "waitStrategy");
+        Conditions.notNull(producerType, "producerType");
+        this.producerType = producerType;
         this.threadFactory = new SingletonThreadFactory() {
 
             @Override
@@ -63,24 +115,19 @@ public class DisruptorTaskQueue extends AbstractTaskQueue {
                 return threadName;
             }
         };
-        disruptor = new Disruptor<>(Holder::empty, bufferSize, threadFactory, ProducerType.MULTI,
-                new BlockingWaitStrategy());
-        disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
-            try {
-                event.get().run();
-            } catch (Exception e) {
-                LOGGER.error("invoke handler error", e);
-            } finally {
-                event.set(null);
-            }
-        });
+        disruptor = new Disruptor<>(TaskEvent::new, bufferSize, threadFactory, producerType,
+                waitStrategy.create(TICK_MILLIS, TimeUnit.MILLISECONDS));
+        disruptor.handleEventsWith(new Consumer());
+        RingBuffer<TaskEvent> ringBuffer = disruptor.getRingBuffer();
+        registerMetrics(threadName, () -> ringBuffer.getBufferSize() - ringBuffer.remainingCapacity() + overflowSize.get(), ringBuffer::remainingCapacity);
         // prevent Worker Threads from dying
-        disruptor.setDefaultExceptionHandler(new ExceptionHandler<Holder<Runnable>>() {
+        disruptor.setDefaultExceptionHandler(new ExceptionHandler<TaskEvent>() {
 
             @Override
-            public void handleEventException(Throwable ex, long sequence, Holder<Runnable> event) {
+            public void handleEventException(Throwable ex, long sequence, TaskEvent event) {
                 LOGGER.error("sequence " + sequence + " error!", ex);
-                Procs.invoke(exception, event.get(), ex, sequence);
+                Procs.invoke(exception, event.task, ex, sequence);
+                event.clear();
             }
 
             @Override
@@ -110,13 +157,242 @@ public class DisruptorTaskQueue extends AbstractTaskQueue {
     }
 
 
+    /**
+     * 队列满时的处理策略
+     *
+     * @param policy
+     * @return
+     */
+    public DisruptorTaskQueue overflow(TaskQueueOverflowPolicy policy) {
+        return overflow(policy, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 队列满时的处理策略
+     * {@link TaskQueueOverflowPolicy#SPILL}和{@link TaskQueueOverflowPolicy#DROP_OLDEST}需要由溢出线程和消费线程往RingBuffer投递唤醒事件，
+     * 只能用于{@link ProducerType#MULTI}
+     *
+     * @param policy
+     * @param timeout {@link TaskQueueOverflowPolicy#BLOCK}的最长阻塞时间，小于等于0一直阻塞
+     * @param unit
+     * @return
+     */
+    public DisruptorTaskQueue overflow(TaskQueueOverflowPolicy policy, long timeout, TimeUnit unit) {
+        Conditions.notNull(policy, "policy");
+        Conditions.args(producerType == ProducerType.MULTI || (policy != TaskQueueOverflowPolicy.SPILL && policy != TaskQueueOverflowPolicy.DROP_OLDEST),
+                "overflow policy %s requires ProducerType.MULTI", policy);
+        this.overflowPolicy = policy;
+        this.overflowTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * 任务被拒绝或丢弃时的处理，未设置时拒绝会抛出{@link TaskQueueRejectedException}
+     *
+     * @param rejected
+     * @return
+     */
+    public DisruptorTaskQueue rejected(Proc1<Runnable> rejected) {
+        this.rejected = rejected;
+        return this;
+    }
+
     @Override
     public void execute(Runnable runnable) {
         Conditions.notNull(runnable, "command");
         if (thread() == Thread.currentThread()) {
             runnable.run();
+            return;
+        }
+        if (blockForever()) {
+            disruptor.getRingBuffer().publishEvent(TRANSLATOR, runnable);
+            return;
+        }
+        if (!tryPublish(runnable)) {
+            overflow(runnable);
+        }
+    }
+
+    @Override
+    public boolean tryExecute(Runnable runnable) {
+        Conditions.notNull(runnable, "command");
+        if (thread() == Thread.currentThread()) {
+            runnable.run();
+            return true;
+        }
+        return tryPublish(runnable);
+    }
+
+    /**
+     * 投递类型化任务，处理器和参数直接写入预先分配的槽位，不产生任何临时对象
+     *
+     * @param handler
+     * @param a
+     * @param b
+     * @param value
+     * @param <A>
+     * @param <B>
+     */
+    public <A, B> void execute(TaskHandler<A, B> handler, A a, B b, long value) {
+        execute(handler, a, b, value, null);
+    }
+
+    /**
+     * 投递类型化任务，执行完后标记完成
+     *
+     * @param handler
+     * @param a
+     * @param b
+     * @param value
+     * @param completion 可复用的完成标记
+     * @param <A>
+     * @param <B>
+     */
+    public <A, B> void execute(TaskHandler<A, B> handler, A a, B b, long value, TaskCompletion completion) {
+        Conditions.notNull(handler, "handler");
+        if (thread() == Thread.currentThread()) {
+            TaskEvent.invoke(handler, a, b, value, completion);
+            return;
+        }
+        RingBuffer<TaskEvent> ringBuffer = disruptor.getRingBuffer();
+        long sequence = blockForever() ? ringBuffer.next() : tryNext(ringBuffer);
+        if (sequence < 0) {
+            // 只有溢出时才需要包装成普通任务
+            overflow(() -> TaskEvent.invoke(handler, a, b, value, completion));
+            return;
+        }
+        try {
+            TaskEvent event = ringBuffer.get(sequence);
+            event.handler = handler;
+            event.a = a;
+            event.b = b;
+            event.value = value;
+            event.completion = completion;
+            event.enqueueTime = System.nanoTime();
+        } finally {
+            ringBuffer.publish(sequence);
         }
-        disruptor.getRingBuffer().publishEvent((event, sequence) -> event.set(runnable));
+    }
+
+    /**
+     * 批量投递，一批只申请一次序号(超过RingBuffer大小时分批)
+     *
+     * @param runnables
+     */
+    @Override
+    public void executeAll(Runnable... runnables) {
+        Conditions.notNull(runnables, "commands");
+        for (Runnable runnable : runnables) {
+            Conditions.notNull(runnable, "command");
+        }
+        if (thread() == Thread.currentThread()) {
+            for (Runnable runnable : runnables) {
+                runnable.run();
+            }
+            return;
+        }
+        RingBuffer<TaskEvent> ringBuffer = disruptor.getRingBuffer();
+        int batch = ringBuffer.getBufferSize();
+        for (int start = 0; start < runnables.length; start += batch) {
+            int size = Math.min(batch, runnables.length - start);
+            if (blockForever()) {
+                ringBuffer.publishEvents(TRANSLATOR, start, size, runnables);
+            } else if (overflowSize.get() != 0 || !ringBuffer.tryPublishEvents(TRANSLATOR, start, size, runnables)) {
+                for (int i = start; i < start + size; ++i) {
+                    execute(runnables[i]);
+                }
+            }
+        }
+    }
+
+    private boolean blockForever() {
+        return overflowPolicy == TaskQueueOverflowPolicy.BLOCK && overflowTimeoutNanos <= 0;
+    }
+
+    private long tryNext(RingBuffer<TaskEvent> ringBuffer) {
+        if (overflowSize.get() != 0) {
+            return -1;
+        }
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return -1;
+        }
+    }
+
+    private boolean tryPublish(Runnable runnable) {
+        // 有溢出任务时新任务也要排到后面，保证顺序
+        return overflowSize.get() == 0 && disruptor.getRingBuffer().tryPublishEvent(TRANSLATOR, runnable);
+    }
+
+    private void overflow(Runnable runnable) {
+        RingBuffer<TaskEvent> ringBuffer = disruptor.getRingBuffer();
+        switch (overflowPolicy) {
+            case BLOCK:
+                long deadline = System.nanoTime() + overflowTimeoutNanos;
+                while (!ringBuffer.tryPublishEvent(TRANSLATOR, runnable)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        reject(runnable);
+                        return;
+                    }
+                    LockSupport.parkNanos(1);
+                }
+                break;
+            case REJECT:
+                reject(runnable);
+                break;
+            case SPILL:
+                spill(runnable);
+                break;
+            case DROP_OLDEST:
+                spill(runnable);
+                while (overflowSize.get() > ringBuffer.getBufferSize()) {
+                    TaskQueueMetrics.TimedTask dropped = overflowQueue.poll();
+                    if (dropped == null) {
+                        break;
+                    }
+                    overflowSize.decrementAndGet();
+                    Procs.invoke(rejected, dropped.task);
+                }
+                break;
+        }
+    }
+
+    private void spill(Runnable runnable) {
+        overflowQueue.offer(new TaskQueueMetrics.TimedTask(runnable));
+        overflowSize.incrementAndGet();
+        // 消费线程可能正在空闲等待，有空位时塞一个空事件叫醒它
+        disruptor.getRingBuffer().tryPublishEvent(WAKE_UP);
+    }
+
+    private void reject(Runnable runnable) {
+        if (rejected == null) {
+            throw new TaskQueueRejectedException("task queue %s is full,task:%s", threadFactory.name(), runnable.getClass().getName());
+        }
+        rejected.run(runnable);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return addTimeout(TimerWheel.newTimeout(command, delay, 0, unit));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Conditions.positive(period);
+        return addTimeout(TimerWheel.newTimeout(command, initialDelay, period, unit));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        Conditions.positive(delay);
+        return addTimeout(TimerWheel.newTimeout(command, initialDelay, -delay, unit));
+    }
+
+    private ScheduledFuture<?> addTimeout(TimerWheel.Timeout timeout) {
+        // 时间轮只能在消费线程上操作
+        execute(() -> timerWheel.add(timeout));
+        return timeout;
     }
 
     @Override
@@ -128,7 +404,122 @@ public class DisruptorTaskQueue extends AbstractTaskQueue {
     public void shutdown() {
         if (disruptor != null) {
             disruptor.shutdown();
+            if (overflowSize.get() > 0) {
+                LOGGER.warn("thread " + threadFactory.name() + " stopped with " + overflowSize.get() + " overflow tasks");
+            }
+            unregisterMetrics();
             LOGGER.info("thread " + threadFactory.name() + " stop!");
         }
     }
+
+    /**
+     * 消费者，处理完一批任务或等待超时时推进时间轮并通知批次结束
+     */
+    private class Consumer implements EventHandler<TaskEvent>, TimeoutHandler {
+        @Override
+        public void onEvent(TaskEvent event, long sequence, boolean endOfBatch) {
+            long start = System.nanoTime();
+            try {
+                event.run();
+            } catch (Exception e) {
+                LOGGER.error("invoke handler error", e);
+            } finally {
+                Object task = event.task != null ? event.task : event.handler;
+                if (task != null) {
+                    metrics().record(task, event.enqueueTime, start, System.nanoTime());
+                }
+                event.clear();
+            }
+            if (endOfBatch) {
+                drainOverflow(sequence);
+                timerWheel.advance(System.nanoTime());
+                batchEnd();
+            }
+        }
+
+        @Override
+        public void onTimeout(long sequence) {
+            int drained = drainOverflow(sequence);
+            if (timerWheel.advance(System.nanoTime()) > 0 || drained > 0) {
+                batchEnd();
+            }
+        }
+
+        /**
+         * 执行溢出的任务，RingBuffer里还有更早的任务时先不执行
+         *
+         * @param sequence 已处理的序号
+         * @return 执行的数量
+         */
+        private int drainOverflow(long sequence) {
+            RingBuffer<TaskEvent> ringBuffer = disruptor.getRingBuffer();
+            if (overflowSize.get() == 0 || ringBuffer.getCursor() != sequence) {
+                return 0;
+            }
+            int count = 0;
+            TaskQueueMetrics.TimedTask task;
+            while (count < ringBuffer.getBufferSize() && (task = overflowQueue.poll()) != null) {
+                overflowSize.decrementAndGet();
+                ++count;
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOGGER.error("invoke overflow task error", e);
+                    Procs.invoke(exception, task.task, e, sequence);
+                }
+                metrics().record(task.task, task.enqueueTime, start, System.nanoTime());
+            }
+            if (overflowSize.get() > 0) {
+                ringBuffer.tryPublishEvent(WAKE_UP);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * RingBuffer槽位，普通任务或处理器加参数
+     */
+    @SuppressWarnings("unchecked")
+    private static class TaskEvent {
+        private Runnable task;
+        private TaskHandler handler;
+        private Object a;
+        private Object b;
+        private long value;
+        private TaskCompletion completion;
+        private long enqueueTime;
+
+        private void run() {
+            if (task != null) {
+                task.run();
+            } else if (handler != null) {
+                invoke(handler, a, b, value, completion);
+            }
+        }
+
+        private static <A, B> void invoke(TaskHandler<A, B> handler, A a, B b, long value, TaskCompletion completion) {
+            try {
+                handler.handle(a, b, value);
+            } catch (RuntimeException | Error e) {
+                if (completion != null) {
+                    completion.fail(e);
+                }
+                throw e;
+            }
+            if (completion != null) {
+                completion.complete();
+            }
+        }
+
+        private void clear() {
+            task = null;
+            handler = null;
+            a = null;
+            b = null;
+            value = 0;
+            completion = null;
+            enqueueTime = 0;
+        }
+    }
 }
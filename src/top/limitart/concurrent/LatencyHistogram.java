@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import top.limitart.base.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图
+ * <p>
+ * 对数线性分桶(每个2的幂区间再分16格，相对误差约6%)，记录无锁，适合在热点线程上统计纳秒级耗时。
+ * 只细分到2^40(纳秒约18分钟)，更大的值都落在最后一个溢出桶，分桶数组在第一次记录时才分配，大量空闲队列不占内存
+ *
+ * @author hank
+ */
+@ThreadSafe
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int OVERFLOW_INDEX = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+    private static final int BUCKET_COUNT = OVERFLOW_INDEX + 1;
+    private volatile AtomicLongArray buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值(负数按0记录)
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets().incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 记录总数
+     *
+     * @return
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 最大值
+     *
+     * @return
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * 平均值
+     *
+     * @return
+     */
+    public double mean() {
+        long c = count.sum();
+        return c == 0 ? 0 : sum.sum() / (double) c;
+    }
+
+    /**
+     * 百分位值(所在分桶的上界)
+     *
+     * @param percentile 0~100
+     * @return
+     */
+    public long percentile(double percentile) {
+        AtomicLongArray buckets = this.buckets;
+        if (buckets == null) {
+            return 0;
+        }
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            accumulated += snapshot[i];
+            if (accumulated >= target) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * 清空
+     */
+    public void reset() {
+        AtomicLongArray buckets = this.buckets;
+        if (buckets != null) {
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                buckets.set(i, 0);
+            }
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + ",mean=" + (long) mean() + ",p50=" + percentile(50) + ",p99=" + percentile(99)
+                + ",p999=" + percentile(99.9) + ",max=" + max();
+    }
+
+    private AtomicLongArray buckets() {
+        AtomicLongArray buckets = this.buckets;
+        if (buckets == null) {
+            synchronized (this) {
+                buckets = this.buckets;
+                if (buckets == null) {
+                    this.buckets = buckets = new AtomicLongArray(BUCKET_COUNT);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        if (value >= 1L << MAX_MAGNITUDE) {
+            return OVERFLOW_INDEX;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        if (index >= OVERFLOW_INDEX) {
+            return Long.MAX_VALUE;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long sub = index & SUB_BUCKET_MASK;
+        return ((SUB_BUCKET_COUNT + sub + 1) << shift) - 1;
+    }
+}
@@ -32,7 +32,7 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public class LinkedBlockingTaskQueue extends AbstractTaskQueue implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(LinkedBlockingTaskQueue.class);
-    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TaskQueueMetrics.TimedTask> queue = new LinkedBlockingQueue<>();
     private final SingletonThreadFactory threadFactory;
     private boolean start = false;
     private Proc2<Runnable, Throwable> exception;
@@ -49,6 +49,7 @@ public class LinkedBlockingTaskQueue extends AbstractTaskQueue implements Runnab
                 return threadName;
             }
         };
+        registerMetrics(threadName, () -> (long) queue.size(), () -> (long) queue.remainingCapacity());
         threadFactory.newThread(this);
         threadFactory.thread().start();
     }
@@ -63,13 +64,22 @@ public class LinkedBlockingTaskQueue extends AbstractTaskQueue implements Runnab
     public void run() {
         start = true;
         while (start || !queue.isEmpty()) {
-            Runnable take = null;
+            TaskQueueMetrics.TimedTask take;
             try {
                 take = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            long startTime = System.nanoTime();
+            try {
                 take.run();
             } catch (Exception e) {
                 LOGGER.error("invoke error", e);
-                Procs.invoke(exception, take, e);
+                Procs.invoke(exception, take.task, e);
+            }
+            metrics().record(take.task, take.enqueueTime, startTime, System.nanoTime());
+            if (queue.isEmpty()) {
+                batchEnd();
             }
         }
     }
@@ -78,6 +88,7 @@ public class LinkedBlockingTaskQueue extends AbstractTaskQueue implements Runnab
     @Override
     public void shutdown() {
         start = false;
+        unregisterMetrics();
     }
 
     @Override
@@ -90,7 +101,8 @@ public class LinkedBlockingTaskQueue extends AbstractTaskQueue implements Runnab
         Conditions.notNull(command, "command");
         if (thread() == Thread.currentThread()) {
             command.run();
+            return;
         }
-        Conditions.args(queue.offer(command), "add command failed, command:%s", command.getClass().getName());
+        Conditions.args(queue.offer(new TaskQueueMetrics.TimedTask(command)), "add command failed, command:%s", command.getClass().getName());
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import top.limitart.base.Conditions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 可复用的任务完成标记
+ * <p>
+ * 代替{@link java.util.concurrent.FutureTask}等待任务执行完，不需要每次投递都创建对象。
+ * 同一时间只能用于一个任务、由一个线程等待，用完调用{@link #reset()}后可再次使用
+ *
+ * @author hank
+ */
+public class TaskCompletion {
+    private static final int PENDING = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILED = 2;
+    private volatile int state;
+    private volatile Thread waiter;
+    private Throwable cause;
+
+    /**
+     * 是否已完成(成功或失败)
+     *
+     * @return
+     */
+    public boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * 是否成功完成
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        return state == SUCCESS;
+    }
+
+    /**
+     * 失败原因
+     *
+     * @return
+     */
+    public Throwable cause() {
+        return state == FAILED ? cause : null;
+    }
+
+    /**
+     * 等待完成
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否在超时前完成
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (isDone()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waiter = Thread.currentThread();
+        try {
+            while (!isDone()) {
+                long remain = deadline - System.nanoTime();
+                if (remain <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remain);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * 重置以便复用
+     */
+    public void reset() {
+        Conditions.args(state != PENDING || waiter == null, "completion is being waited");
+        cause = null;
+        state = PENDING;
+    }
+
+    void complete() {
+        state = SUCCESS;
+        wakeUp();
+    }
+
+    void fail(Throwable cause) {
+        this.cause = cause;
+        state = FAILED;
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
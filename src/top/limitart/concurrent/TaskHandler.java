@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+/**
+ * 任务处理器
+ * <p>
+ * 与参数一起直接写入任务队列预先分配的槽位中，投递时不需要创建闭包。处理器本身应当是无状态的单例
+ *
+ * @param <A> 参数1
+ * @param <B> 参数2
+ * @author hank
+ * @see DisruptorTaskQueue#execute(TaskHandler, Object, Object, long)
+ */
+@FunctionalInterface
+public interface TaskHandler<A, B> {
+    void handle(A a, B b, long value);
+}
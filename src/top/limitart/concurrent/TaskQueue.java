@@ -16,6 +16,8 @@
 package top.limitart.concurrent;
 
 
+import top.limitart.base.Proc;
+
 import java.util.concurrent.*;
 
 /**
@@ -41,12 +43,63 @@ public interface TaskQueue extends Executor {
                                               long delay,
                                               TimeUnit unit);
 
+    /**
+     * 批量投递任务
+     *
+     * @param commands
+     */
+    default void executeAll(Runnable... commands) {
+        for (Runnable command : commands) {
+            execute(command);
+        }
+    }
+
+    /**
+     * 尝试投递任务，队列已满时不阻塞，直接返回失败
+     *
+     * @param command
+     * @return 是否投递成功
+     */
+    default boolean tryExecute(Runnable command) {
+        execute(command);
+        return true;
+    }
+
     <T> Future<T> submit(Callable<T> task);
 
     <T> Future<T> submit(Runnable task, T result);
 
     Future<?> submit(Runnable task);
 
+    /**
+     * 添加批次结束监听，队列每处理完一批任务(暂时没有更多任务)时在队列线程上调用
+     * 适合把刷新网络、保存脏数据、汇总统计等开销大的操作推迟到一批任务之后统一处理
+     *
+     * @param listener
+     */
+    void addBatchEndListener(Proc listener);
+
+    /**
+     * 移除批次结束监听
+     *
+     * @param listener
+     */
+    void removeBatchEndListener(Proc listener);
+
+    /**
+     * 推迟到当前批次结束时执行一次(同一个对象在一批中只执行一次)，只能在队列线程调用
+     *
+     * @param task
+     */
+    void deferToBatchEnd(Runnable task);
+
+    /**
+     * 队列统计
+     *
+     * @return
+     */
+    TaskQueueMetrics metrics();
+
     /**
      * 关闭
      */
@@ -31,8 +31,10 @@ import java.util.concurrent.*;
  */
 public class TaskQueueActor<R extends Actor.Place<TaskQueue>> extends AbstractThreadActor<TaskQueue, R> {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskQueueActor.class);
-    //同步执行最大阻塞时间
+    //同步请求超时时间
     private static final long SYNC_OVER_TIME = 2000;
+    // 正在处理的跨队列请求链路
+    private static final ThreadLocal<RequestChain> CURRENT_CHAIN = new ThreadLocal<>();
 
     @Override
     public boolean sameThread(TaskQueue taskQueue) {
@@ -65,8 +67,8 @@ public class TaskQueueActor<R extends Actor.Place<TaskQueue>> extends AbstractTh
     }
 
     /**
-     * 与其他消息队列协作任务(同步)
-     * 保证在响应速度要求低的调用响应线程要求高的线程，阻塞前者以确保运行在前者线程的数据正确性
+     * 与其他消息队列协作任务(同步语义，不阻塞线程)
+     * 回调在本队列执行，等待回复期间本队列可以继续处理其他任务
      *
      * @param another
      * @param process
@@ -82,13 +84,10 @@ public class TaskQueueActor<R extends Actor.Place<TaskQueue>> extends AbstractTh
         Conditions.notNull(onSuccess, "onSuccess");
         R where = where();
         Conditions.notNull(where, "no place to hold!");
-        where.res().execute(() -> {
-            Future<Boolean> submit = another.res().submit(process::run);
-            Boolean result = null;
-            try {
-                result = submit.get(SYNC_OVER_TIME, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                LOGGER.error("task queue " + another.res().thread().getName(), e);
+        where.res().execute(() -> requestAnother(another, process, SYNC_OVER_TIME, TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+            if (e != null) {
+                TaskQueue to = another.res();
+                LOGGER.error("task queue " + (to.thread() == null ? to : to.thread().getName()), e);
             }
             if (result == null || !result) {
                 if (onFail != null) {
@@ -97,6 +96,158 @@ public class TaskQueueActor<R extends Actor.Place<TaskQueue>> extends AbstractTh
             } else {
                 onSuccess.run();
             }
+        }));
+    }
+
+    /**
+     * 向其他消息队列发起请求
+     * 处理函数在另一个队列执行，结果(包括超时和异常)回到本队列完成，在本队列线程上调用时挂接的后续操作也都在本队列执行。
+     * 在本队列线程上对返回结果调用get/join会阻塞本队列同步等待，此时回复直接交给等待的线程，最长等待到请求超时。
+     * 请求链路会被记录，如果处理函数再向链路上游正在同步等待回复的队列发起请求，直接以{@link TaskQueueDeadlockException}失败，
+     * 上游只是异步等待回调时不算死锁
+     *
+     * @param another 其他消息队列
+     * @param process 在其他队列执行的处理函数
+     * @param timeout 超时
+     * @param unit
+     * @param <T>
+     * @return
+     */
+    public <T> CompletionStage<T> requestAnother(R another, Func<T> process, long timeout, TimeUnit unit) {
+        Conditions.notNull(another, "another");
+        Conditions.notNull(process, "process");
+        R where = where();
+        Conditions.notNull(where, "no place to hold!");
+        TaskQueue from = where.res();
+        TaskQueue to = another.res();
+        RequestChain upstream = CURRENT_CHAIN.get();
+        if (to != from && upstream != null && upstream.blocking(to)) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new TaskQueueDeadlockException("request cycle detected,%s is blocked waiting upstream", to.thread() == null ? to : to.thread().getName()));
+            return future;
+        }
+        RequestChain chain = new RequestChain(from, upstream);
+        Request<T> request = new Request<>(chain, unit.toNanos(timeout));
+        request.timer = from.schedule(() -> request.completeExceptionally(new TimeoutException("request to " + to + " timeout")), timeout, unit);
+        to.execute(() -> {
+            RequestChain old = CURRENT_CHAIN.get();
+            CURRENT_CHAIN.set(chain);
+            T result;
+            try {
+                result = process.run();
+            } catch (Throwable e) {
+                request.reply(null, e);
+                return;
+            } finally {
+                CURRENT_CHAIN.set(old);
+            }
+            request.reply(result, null);
         });
+        return request;
+    }
+
+    /**
+     * 跨队列请求的结果，正常在发起队列上完成
+     * 发起队列线程在get/join上同步等待时，回复不经过被阻塞的发起队列，由等待的线程直接完成
+     *
+     * @param <T>
+     */
+    private static class Request<T> extends CompletableFuture<T> {
+        private final RequestChain chain;
+        private final long timeoutNanos;
+        private final CountDownLatch replied = new CountDownLatch(1);
+        private volatile ScheduledFuture<?> timer;
+        // 在countDown之前写入
+        private T result;
+        private Throwable error;
+
+        private Request(RequestChain chain, long timeoutNanos) {
+            this.chain = chain;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        private void reply(T result, Throwable error) {
+            this.result = result;
+            this.error = error;
+            replied.countDown();
+            chain.queue.execute(this::deliver);
+        }
+
+        private void deliver() {
+            timer.cancel(false);
+            if (error != null) {
+                completeExceptionally(error);
+            } else {
+                complete(result);
+            }
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            awaitReply();
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            awaitReply();
+            return super.get(timeout, unit);
+        }
+
+        @Override
+        public T join() {
+            try {
+                awaitReply();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                completeExceptionally(e);
+            }
+            return super.join();
+        }
+
+        /**
+         * 在发起队列线程上同步等待回复，超过请求超时时间按超时失败
+         *
+         * @throws InterruptedException
+         */
+        private void awaitReply() throws InterruptedException {
+            if (isDone() || chain.queue.thread() != Thread.currentThread()) {
+                return;
+            }
+            chain.waiting = true;
+            try {
+                if (replied.await(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    deliver();
+                } else {
+                    completeExceptionally(new TimeoutException("request from " + chain.queue + " timeout"));
+                }
+            } finally {
+                chain.waiting = false;
+            }
+        }
+    }
+
+    /**
+     * 请求链路(发起方队列和它的上游)
+     */
+    private static class RequestChain {
+        private final TaskQueue queue;
+        private final RequestChain parent;
+        // 发起方队列线程正在同步等待回复
+        private volatile boolean waiting;
+
+        private RequestChain(TaskQueue queue, RequestChain parent) {
+            this.queue = queue;
+            this.parent = parent;
+        }
+
+        private boolean blocking(TaskQueue target) {
+            for (RequestChain node = this; node != null; node = node.parent) {
+                if (node.queue == target && node.waiting) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
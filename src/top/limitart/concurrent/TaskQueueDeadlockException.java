@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import top.limitart.base.LimitartRuntimeException;
+
+/**
+ * 跨队列请求形成环路(请求回到了链路上游仍在等待回复的队列)
+ *
+ * @author hank
+ */
+public class TaskQueueDeadlockException extends LimitartRuntimeException {
+
+    public TaskQueueDeadlockException(String template, Object... params) {
+        super(template, params);
+    }
+}
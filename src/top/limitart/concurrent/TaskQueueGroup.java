@@ -51,4 +51,23 @@ public class TaskQueueGroup {
     public TaskQueue next() {
         return taskQueues[Math.abs(curIndex.getAndIncrement()) % taskQueues.length];
     }
+
+    /**
+     * 按键获取线程(同一个键总是得到同一个线程，可以保证同一个对象的任务有序)
+     *
+     * @param key 如会话ID、玩家ID
+     * @return
+     */
+    public TaskQueue get(long key) {
+        return taskQueues[(int) Math.floorMod(key, (long) taskQueues.length)];
+    }
+
+    /**
+     * 线程数量
+     *
+     * @return
+     */
+    public int size() {
+        return taskQueues.length;
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.Func;
+import top.limitart.base.ThreadSafe;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 任务队列统计
+ * <p>
+ * 包括队列积压深度、剩余容量、任务从投递到开始执行的等待时间、执行耗时，以及慢任务检测(超过阈值时记录任务类型)。
+ * 所有队列的统计按线程名登记，可以通过{@link #get(String)}和{@link #all()}查询
+ *
+ * @author hank
+ */
+@ThreadSafe
+public class TaskQueueMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskQueueMetrics.class);
+    private static final Map<String, TaskQueueMetrics> REGISTRY = new ConcurrentHashMap<>();
+    private final String name;
+    private final Func<Long> depth;
+    private final Func<Long> remainingCapacity;
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram executeTime = new LatencyHistogram();
+    private final LongAdder slowTasks = new LongAdder();
+    private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 按线程名查询
+     *
+     * @param name
+     * @return
+     */
+    public static TaskQueueMetrics get(String name) {
+        return REGISTRY.get(name);
+    }
+
+    /**
+     * 所有队列的统计
+     *
+     * @return
+     */
+    public static Collection<TaskQueueMetrics> all() {
+        return Collections.unmodifiableCollection(REGISTRY.values());
+    }
+
+    static TaskQueueMetrics register(String name, Func<Long> depth, Func<Long> remainingCapacity) {
+        TaskQueueMetrics metrics = new TaskQueueMetrics(name, depth, remainingCapacity);
+        if (REGISTRY.put(name, metrics) != null) {
+            LOGGER.warn("task queue metrics {} replaced,task queue name duplicated?", name);
+        }
+        return metrics;
+    }
+
+    static void unregister(TaskQueueMetrics metrics) {
+        REGISTRY.remove(metrics.name, metrics);
+    }
+
+    private TaskQueueMetrics(String name, Func<Long> depth, Func<Long> remainingCapacity) {
+        this.name = name;
+        this.depth = depth;
+        this.remainingCapacity = remainingCapacity;
+    }
+
+    /**
+     * 记录一次任务执行
+     *
+     * @param task        任务(用于慢任务日志)
+     * @param enqueueTime 投递时间(nanoTime，未知时为0)
+     * @param startTime   开始执行时间
+     * @param endTime     执行结束时间
+     */
+    void record(Object task, long enqueueTime, long startTime, long endTime) {
+        if (enqueueTime != 0) {
+            waitTime.record(startTime - enqueueTime);
+        }
+        long cost = endTime - startTime;
+        executeTime.record(cost);
+        if (cost > slowThresholdNanos) {
+            slowTasks.increment();
+            LOGGER.warn("slow task on {}:{} cost {}ms", name, task == null ? "null" : task.getClass().getName(),
+                    TimeUnit.NANOSECONDS.toMillis(cost));
+        }
+    }
+
+    /**
+     * 队列名称(线程名)
+     *
+     * @return
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 积压的任务数
+     *
+     * @return
+     */
+    public long depth() {
+        return depth.run();
+    }
+
+    /**
+     * 剩余容量
+     *
+     * @return
+     */
+    public long remainingCapacity() {
+        return remainingCapacity.run();
+    }
+
+    /**
+     * 任务从投递到开始执行的等待时间(纳秒)
+     *
+     * @return
+     */
+    public LatencyHistogram waitTime() {
+        return waitTime;
+    }
+
+    /**
+     * 任务执行耗时(纳秒)
+     *
+     * @return
+     */
+    public LatencyHistogram executeTime() {
+        return executeTime;
+    }
+
+    /**
+     * 慢任务数量
+     *
+     * @return
+     */
+    public long slowTasks() {
+        return slowTasks.sum();
+    }
+
+    /**
+     * 设置慢任务阈值(默认100毫秒)
+     *
+     * @param threshold
+     * @param unit
+     * @return
+     */
+    public TaskQueueMetrics slowThreshold(long threshold, TimeUnit unit) {
+        Conditions.positive(threshold);
+        this.slowThresholdNanos = unit.toNanos(threshold);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{depth=" + depth() + ",remaining=" + remainingCapacity() + ",wait(ns)=[" + waitTime + "],execute(ns)=["
+                + executeTime + "],slow=" + slowTasks() + "}";
+    }
+
+    /**
+     * 带投递时间的任务包装
+     */
+    static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long enqueueTime;
+
+        TimedTask(Runnable task) {
+            this.task = task;
+            this.enqueueTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
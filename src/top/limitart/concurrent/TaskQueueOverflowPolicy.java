@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+/**
+ * 任务队列满时的处理策略
+ *
+ * @author hank
+ * @see DisruptorTaskQueue#overflow(TaskQueueOverflowPolicy)
+ */
+public enum TaskQueueOverflowPolicy {
+    /**
+     * 阻塞投递线程直到有空位(可设置超时，超时后按拒绝处理)
+     */
+    BLOCK,
+    /**
+     * 立即拒绝
+     */
+    REJECT,
+    /**
+     * 溢出到无界队列，消费线程处理完RingBuffer后按顺序执行
+     */
+    SPILL,
+    /**
+     * 溢出到与RingBuffer等长的队列，再满时丢弃最早溢出的任务，只适用于可以丢弃的幂等任务
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import top.limitart.base.LimitartRuntimeException;
+
+/**
+ * 任务队列已满或已关闭，任务被拒绝
+ *
+ * @author hank
+ */
+public class TaskQueueRejectedException extends LimitartRuntimeException {
+
+    public TaskQueueRejectedException(String template, Object... params) {
+        super(template, params);
+    }
+}
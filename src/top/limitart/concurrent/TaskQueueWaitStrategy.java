@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import com.lmax.disruptor.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 任务队列空闲时的等待策略
+ * <p>
+ * 所有策略在空闲超过指定时间后都会抛出{@link TimeoutException}让消费线程醒来推进定时任务
+ *
+ * @author hank
+ * @see DisruptorTaskQueue
+ */
+public enum TaskQueueWaitStrategy {
+    /**
+     * 锁和条件变量，CPU占用最低，每次发布都要加锁唤醒
+     */
+    BLOCKING {
+        @Override
+        WaitStrategy create(long timeout, TimeUnit unit) {
+            return new TimeoutBlockingWaitStrategy(timeout, unit);
+        }
+    },
+    /**
+     * 自旋后让出再短暂休眠，延迟和CPU占用折中
+     */
+    SLEEPING {
+        @Override
+        WaitStrategy create(long timeout, TimeUnit unit) {
+            return new SpinWaitStrategy(this, unit.toNanos(timeout));
+        }
+    },
+    /**
+     * 自旋后让出CPU，低延迟，空闲时也会占满一个核
+     */
+    YIELDING {
+        @Override
+        WaitStrategy create(long timeout, TimeUnit unit) {
+            return new SpinWaitStrategy(this, unit.toNanos(timeout));
+        }
+    },
+    /**
+     * 忙等，延迟最低，需要独占CPU核心
+     */
+    BUSY_SPIN {
+        @Override
+        WaitStrategy create(long timeout, TimeUnit unit) {
+            return new SpinWaitStrategy(this, unit.toNanos(timeout));
+        }
+    },
+    /**
+     * 先自旋再让出，最后退回到锁等待
+     */
+    PHASED_BACKOFF {
+        @Override
+        WaitStrategy create(long timeout, TimeUnit unit) {
+            return new PhasedBackoffWaitStrategy(1, 1, TimeUnit.MILLISECONDS, new TimeoutBlockingWaitStrategy(timeout, unit));
+        }
+    };
+
+    /**
+     * 创建Disruptor等待策略
+     *
+     * @param timeout 空闲超时
+     * @param unit
+     * @return
+     */
+    abstract WaitStrategy create(long timeout, TimeUnit unit);
+
+    /**
+     * 不加锁的等待策略(带空闲超时)
+     */
+    private static class SpinWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+        private static final int SLEEP_TRIES = 200;
+        private final TaskQueueWaitStrategy type;
+        private final long timeoutNanos;
+
+        private SpinWaitStrategy(TaskQueueWaitStrategy type, long timeoutNanos) {
+            this.type = type;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+                throws AlertException, InterruptedException, TimeoutException {
+            long availableSequence;
+            int counter = type == SLEEPING ? SLEEP_TRIES : SPIN_TRIES;
+            long deadline = 0;
+            int checks = 0;
+            while ((availableSequence = dependentSequence.get()) < sequence) {
+                barrier.checkAlert();
+                counter = applyWaitMethod(counter);
+                if ((++checks & 0xFF) == 0) {
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + timeoutNanos;
+                    } else if (now - deadline > 0) {
+                        throw TimeoutException.INSTANCE;
+                    }
+                }
+            }
+            return availableSequence;
+        }
+
+        private int applyWaitMethod(int counter) {
+            switch (type) {
+                case SLEEPING:
+                    if (counter > SPIN_TRIES) {
+                        return counter - 1;
+                    } else if (counter > 0) {
+                        Thread.yield();
+                        return counter - 1;
+                    }
+                    LockSupport.parkNanos(100);
+                    return counter;
+                case YIELDING:
+                    if (counter == 0) {
+                        Thread.yield();
+                        return counter;
+                    }
+                    return counter - 1;
+                default:
+                    return counter;
+            }
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+            // 不阻塞，无需唤醒
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.ThreadUnsafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 由所属线程独占，插入和取消都是O(1)。所属线程在空闲或处理完一批任务后调用{@link #advance(long)}推进时间轮，
+ * 到期的任务直接在所属线程上执行。取消可以在任意线程调用，被取消的任务在其所在的格子被访问时移除
+ *
+ * @author hank
+ */
+@ThreadUnsafe
+public class TimerWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    private long tick;
+    private int size;
+
+    /**
+     * @param tickDuration 每格时长
+     * @param unit
+     * @param wheelSize    格子数(会向上取2的幂)
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int wheelSize) {
+        Conditions.positive(tickDuration);
+        Conditions.positive(wheelSize);
+        int normalized = 1;
+        while (normalized < wheelSize) {
+            normalized <<= 1;
+        }
+        this.buckets = new Bucket[normalized];
+        for (int i = 0; i < normalized; ++i) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = normalized - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * 创建一个定时任务(需再调用{@link #add(Timeout)}放入时间轮)
+     *
+     * @param command
+     * @param delay
+     * @param period  大于0为固定频率，小于0为固定延迟，等于0只执行一次
+     * @param unit
+     * @return
+     */
+    public static Timeout newTimeout(Runnable command, long delay, long period, TimeUnit unit) {
+        Conditions.notNull(command, "command");
+        return new Timeout(command, System.nanoTime() + unit.toNanos(Math.max(0, delay)), unit.toNanos(period));
+    }
+
+    /**
+     * 放入时间轮
+     *
+     * @param timeout
+     */
+    public void add(Timeout timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+        long calculated = (timeout.deadline - startTime) / tickNanos;
+        timeout.remainingRounds = (calculated - tick) / buckets.length;
+        buckets[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+        ++size;
+    }
+
+    /**
+     * 推进到指定时间，执行期间到期的所有任务
+     *
+     * @param now {@link System#nanoTime()}
+     * @return 执行的任务数
+     */
+    public int advance(long now) {
+        long target = (now - startTime) / tickNanos;
+        if (size == 0) {
+            // 没有任务时直接跳过
+            if (target > tick) {
+                tick = target;
+            }
+            return 0;
+        }
+        int count = 0;
+        List<Timeout> expired = null;
+        while (tick < target) {
+            Bucket bucket = buckets[(int) (tick & mask)];
+            ++tick;
+            Timeout timeout = bucket.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    bucket.remove(timeout);
+                    --size;
+                } else if (timeout.remainingRounds <= 0) {
+                    bucket.remove(timeout);
+                    --size;
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(timeout);
+                } else {
+                    --timeout.remainingRounds;
+                }
+                timeout = next;
+            }
+            if (expired != null) {
+                for (int i = 0; i < expired.size(); ++i) {
+                    expire(expired.get(i), now);
+                }
+                count += expired.size();
+                expired.clear();
+            }
+        }
+        return count;
+    }
+
+    private void expire(Timeout timeout, long now) {
+        try {
+            if (timeout.period == 0) {
+                timeout.run();
+            } else if (timeout.runPeriodic()) {
+                timeout.deadline = timeout.period > 0 ? timeout.deadline + timeout.period : now - timeout.period;
+                add(timeout);
+            }
+        } catch (Throwable e) {
+            LOGGER.error("timer task error", e);
+        }
+    }
+
+    /**
+     * 时间轮中的任务数(包含已取消但还未移除的)
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 每格时长(纳秒)
+     *
+     * @return
+     */
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * 时间轮中的定时任务
+     */
+    public static class Timeout extends FutureTask<Object> implements ScheduledFuture<Object> {
+        private final long period;
+        private volatile long deadline;
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable command, long deadline, long period) {
+            super(command, null);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        private boolean runPeriodic() {
+            return runAndReset();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            if (o == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * 格子(双向链表)
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.LimitartRuntimeException;
+import top.limitart.base.Proc2;
+import top.limitart.base.Procs;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 轻量消息队列
+ * <p>
+ * 不独占平台线程，适合每个房间、场景一个队列的大量队列场景。
+ * JDK21及以上每个队列一个虚拟线程，{@link #thread()}始终是这个虚拟线程；
+ * 更低版本退化为共享{@link ForkJoinPool}上的串行执行器，{@link #thread()}为正在执行本队列任务的线程(空闲时为null)。
+ * 两种方式下任务都按投递顺序串行执行，在任务中判断是否为本队列线程的语义不变。
+ * 关闭后不再接受新任务(抛出{@link TaskQueueRejectedException})，已投递的任务执行完后停止
+ *
+ * @author hank
+ * @see DisruptorTaskQueue
+ */
+public class VirtualThreadTaskQueue extends AbstractTaskQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadTaskQueue.class);
+    // 串行执行器每次最多连续执行的任务数，避免长期占用共享线程
+    private static final int DRAIN_LIMIT = 1024;
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_UNSTARTED;
+    private static final ForkJoinPool SHARED_POOL;
+    private final String name;
+    private final Runner runner;
+    private volatile boolean shutdown;
+    private Proc2<Runnable, Throwable> exception;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderUnstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            builderName = builder.getMethod("name", String.class);
+            builderUnstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+        SHARED_POOL = OF_VIRTUAL == null ? new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true) : null;
+    }
+
+    public static VirtualThreadTaskQueue create(String name) {
+        return new VirtualThreadTaskQueue(name);
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     *
+     * @return
+     */
+    public static boolean virtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    private VirtualThreadTaskQueue(String name) {
+        Conditions.notNull(name, "name");
+        this.name = name;
+        this.runner = virtualThreadSupported() ? new VirtualRunner() : new SerialRunner();
+        registerMetrics(name, () -> (long) runner.size(), () -> (long) Integer.MAX_VALUE - runner.size());
+        LOGGER.info("task queue " + name + " start!" + (virtualThreadSupported() ? "" : "(serial executor)"));
+    }
+
+    /**
+     * 错误处理
+     *
+     * @param exception
+     * @return
+     */
+    public VirtualThreadTaskQueue exception(Proc2<Runnable, Throwable> exception) {
+        this.exception = exception;
+        return this;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Conditions.notNull(command, "command");
+        if (thread() == Thread.currentThread()) {
+            command.run();
+            return;
+        }
+        if (shutdown) {
+            throw new TaskQueueRejectedException("task queue %s is shutdown,task:%s", name, command.getClass().getName());
+        }
+        runner.offer(new TaskQueueMetrics.TimedTask(command));
+    }
+
+    @Override
+    public Thread thread() {
+        return runner.thread();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        runner.shutdown();
+        unregisterMetrics();
+        LOGGER.info("task queue " + name + " stop!");
+    }
+
+    private void runTask(TaskQueueMetrics.TimedTask task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } catch (Exception e) {
+            LOGGER.error("invoke error", e);
+            Procs.invoke(exception, task.task, e);
+        }
+        metrics().record(task.task, task.enqueueTime, start, System.nanoTime());
+    }
+
+    private interface Runner {
+        void offer(TaskQueueMetrics.TimedTask task);
+
+        int size();
+
+        Thread thread();
+
+        void shutdown();
+    }
+
+    /**
+     * 独占一个虚拟线程
+     */
+    private class VirtualRunner implements Runner {
+        private final LinkedBlockingQueue<TaskQueueMetrics.TimedTask> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private volatile boolean start = true;
+
+        private VirtualRunner() {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                thread = (Thread) BUILDER_UNSTARTED.invoke(builder, (Runnable) this::run);
+            } catch (ReflectiveOperationException e) {
+                throw new LimitartRuntimeException("create virtual thread " + name + " failed", e);
+            }
+            thread.start();
+        }
+
+        private void run() {
+            while (start || !queue.isEmpty()) {
+                TaskQueueMetrics.TimedTask task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                runTask(task);
+                if (queue.isEmpty()) {
+                    batchEnd();
+                }
+            }
+        }
+
+        @Override
+        public void offer(TaskQueueMetrics.TimedTask task) {
+            queue.offer(task);
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public Thread thread() {
+            return thread;
+        }
+
+        @Override
+        public void shutdown() {
+            start = false;
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 共享线程池上的串行执行器
+     */
+    private class SerialRunner implements Runner, Runnable {
+        private final Queue<TaskQueueMetrics.TimedTask> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile Thread owner;
+
+        @Override
+        public void run() {
+            owner = Thread.currentThread();
+            try {
+                TaskQueueMetrics.TimedTask task;
+                int count = 0;
+                while (count < DRAIN_LIMIT && (task = queue.poll()) != null) {
+                    runTask(task);
+                    ++count;
+                }
+                batchEnd();
+            } finally {
+                owner = null;
+                scheduled.set(false);
+            }
+            // 释放后又有新任务进来
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        @Override
+        public void offer(TaskQueueMetrics.TimedTask task) {
+            queue.offer(task);
+            schedule();
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                SHARED_POOL.execute(this);
+            }
+        }
+
+        @Override
+        public Thread thread() {
+            return owner;
+        }
+
+        @Override
+        public void shutdown() {
+            // 共享线程池不关闭，关闭前投递的任务照常执行完，之后的任务在投递时拒绝
+        }
+    }
+}
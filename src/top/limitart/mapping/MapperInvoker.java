@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.mapping;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.reflectasm.MethodAccess;
+import top.limitart.script.ByteCodeClassLoader;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 处理方法调用器
+ * <p>
+ * 每个{@link Mapper}方法生成一个调用器类，直接以invokevirtual调用处理方法，没有参数数组和查表。
+ * 处理类或方法无法直接访问时退回{@link MethodAccess}
+ *
+ * @param <C> 请求上下文
+ * @author hank
+ */
+public abstract class MapperInvoker<C> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapperInvoker.class);
+    private static final String INVOKER_INTERNAL = Type.getInternalName(MapperInvoker.class);
+    // 可能在其他线程替换
+    private volatile Object instance;
+
+    /**
+     * 调用处理方法
+     *
+     * @param context
+     */
+    public abstract void invoke(C context);
+
+    /**
+     * 处理类实例
+     *
+     * @return
+     */
+    public final Object instance() {
+        return instance;
+    }
+
+    void instance(Object instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * 为处理方法生成调用器
+     *
+     * @param mapperClass
+     * @param method
+     * @param methodAccess 生成失败时使用
+     * @param methodIndex  方法在methodAccess中的索引
+     * @param instance     处理类实例
+     * @return
+     */
+    static <C> MapperInvoker<C> create(Class<?> mapperClass, Method method, MethodAccess methodAccess, int methodIndex, Object instance) {
+        MapperInvoker<C> invoker = null;
+        if (Modifier.isPublic(mapperClass.getModifiers()) && Modifier.isPublic(method.getParameterTypes()[0].getModifiers())) {
+            try {
+                String invokerClassName = mapperClass.getName() + "$" + method.getName() + methodIndex + "MapperInvoker";
+                byte[] bytes = generate(invokerClassName.replace('.', '/'), mapperClass, method);
+                Class<?> invokerClass = new ByteCodeClassLoader(mapperClass.getClassLoader()).loadClass(invokerClassName, bytes);
+                invoker = (MapperInvoker<C>) invokerClass.getConstructor().newInstance();
+            } catch (Exception | LinkageError e) {
+                LOGGER.warn("generate invoker for {}.{} failed,use MethodAccess instead", mapperClass.getName(), method.getName(), e);
+            }
+        }
+        if (invoker == null) {
+            invoker = new AccessInvoker<>(methodAccess, methodIndex);
+        }
+        invoker.instance(instance);
+        return invoker;
+    }
+
+    private static byte[] generate(String invokerInternal, Class<?> mapperClass, Method method) {
+        String mapperInternal = Type.getInternalName(mapperClass);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, invokerInternal, null, INVOKER_INTERNAL, null);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, INVOKER_INTERNAL, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, INVOKER_INTERNAL, "instance", "()Ljava/lang/Object;", false);
+        mv.visitTypeInsn(CHECKCAST, mapperInternal);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getParameterTypes()[0]));
+        mv.visitMethodInsn(INVOKEVIRTUAL, mapperInternal, method.getName(), Type.getMethodDescriptor(method), false);
+        Class<?> returnType = method.getReturnType();
+        if (returnType == long.class || returnType == double.class) {
+            mv.visitInsn(POP2);
+        } else if (returnType != void.class) {
+            mv.visitInsn(POP);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 通过{@link MethodAccess}调用
+     */
+    private static class AccessInvoker<C> extends MapperInvoker<C> {
+        private final MethodAccess methodAccess;
+        private final int methodIndex;
+
+        private AccessInvoker(MethodAccess methodAccess, int methodIndex) {
+            this.methodAccess = methodAccess;
+            this.methodIndex = methodIndex;
+        }
+
+        @Override
+        public void invoke(C context) {
+            methodAccess.invoke(instance(), methodIndex, context);
+        }
+    }
+}
@@ -100,6 +100,14 @@ public interface Router<M, C extends RequestContext<M>> {
      */
     M requestInstance(Class<M> requestClass) throws Exception;
 
+    /**
+     * 获取请求对应的处理方法调用器(可在启动时缓存，之后直接调用，不再查表)
+     *
+     * @param requestClass
+     * @return 未注册返回null
+     */
+    MapperInvoker<C> invoker(Class<M> requestClass);
+
     void request(M request, Func<C> contextInstance, Proc1<MethodInvoker> proc);
 
     interface MethodInvoker {
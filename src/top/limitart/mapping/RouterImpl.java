@@ -44,7 +44,6 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
     // !!这里的asm应用经测试在JAVA8下最优
     private final Map<Class<M>, RouterImpl.Context> msgs = new ConcurrentHashMap<>();
     private final Map<Class<?>, Object> managerInstances = new ConcurrentHashMap<>();
-    private final Map<Class<?>, MethodAccess> methods = new ConcurrentHashMap<>();
     private Class<M> mClass;
     private Class<C> cClass;
 
@@ -156,11 +155,6 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
             if (msgs.containsKey(messageType)) {
                 throw new RequestDuplicatedException(messageType.getName());
             }
-            RouterImpl.Context messageContext = new RouterImpl.Context();
-            messageContext.conAccess = constructorAccess;
-            messageContext.managerClazz = mapperClass;
-            messageContext.methodIndex = i;
-            msgs.put((Class<M>) messageType, messageContext);
             if (!managerInstances.containsKey(mapperClass)) {
                 if (confirmInstance != null) {
                     managerInstances.put(mapperClass, confirmInstance.run(mapperClass));
@@ -168,9 +162,12 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
                     managerInstances.put(mapperClass, mapperClass.newInstance());
                 }
             }
-            if (!methods.containsKey(mapperClass)) {
-                methods.put(mapperClass, methodAccess);
-            }
+            RouterImpl.Context messageContext = new RouterImpl.Context();
+            messageContext.conAccess = constructorAccess;
+            messageContext.managerClazz = mapperClass;
+            messageContext.methodIndex = i;
+            messageContext.invoker = MapperInvoker.create(mapperClass, method, methodAccess, i, managerInstances.get(mapperClass));
+            msgs.put((Class<M>) messageType, messageContext);
             LOGGER.info("register request " + messageType.getName() + " at " + mapperClass.getName());
         }
         return this;
@@ -189,6 +186,11 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
         Conditions.notNull(newInstance, "newInstance");
         if (managerInstances.containsKey(mapperClass)) {
             managerInstances.put(mapperClass, newInstance);
+            for (RouterImpl.Context context : msgs.values()) {
+                if (context.managerClazz == mapperClass) {
+                    context.invoker.instance(newInstance);
+                }
+            }
         }
     }
 
@@ -213,6 +215,15 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
     }
 
 
+    @Override
+    public MapperInvoker<C> invoker(Class<M> requestClass) {
+        RouterImpl.Context messageContext = msgs.get(requestClass);
+        if (messageContext == null) {
+            return null;
+        }
+        return messageContext.invoker;
+    }
+
     @Override
     public void request(M request, Func<C> contextInstance, Proc1<MethodInvoker> proc) {
         Conditions.notNull(request, "request");
@@ -223,9 +234,7 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
             return;
         }
         C param = contextInstance.run();
-        MethodAccess methodAccess = methods.get(messageContext.managerClazz);
-        Object object = managerInstances.get(messageContext.managerClazz);
-        proc.run(new Invoker(methodAccess, object, messageContext.methodIndex, param));
+        proc.run(new Invoker(messageContext.invoker, param));
     }
 
 
@@ -233,24 +242,21 @@ public class RouterImpl<M, C extends RequestContext<M>> implements Router<M, C>
         private ConstructorAccess<M> conAccess;
         private Class<?> managerClazz;
         private int methodIndex;
+        private MapperInvoker<C> invoker;
     }
 
     public class Invoker implements MethodInvoker {
-        private MethodAccess methodAccess;
-        private Object object;
-        private int methodIndex;
+        private MapperInvoker<C> invoker;
         private C param;
 
-        public Invoker(MethodAccess methodAccess, Object object, int methodIndex, C param) {
-            this.methodAccess = methodAccess;
-            this.object = object;
-            this.methodIndex = methodIndex;
+        public Invoker(MapperInvoker<C> invoker, C param) {
+            this.invoker = invoker;
             this.param = param;
         }
 
         @Override
         public void invoke() {
-            methodAccess.invoke(object, methodIndex, param);
+            invoker.invoke(param);
         }
     }
 }
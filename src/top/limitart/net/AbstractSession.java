@@ -17,6 +17,11 @@ public abstract class AbstractSession<B, T> implements Session<B, T> {
         writeNow(buf, null);
     }
 
+    @Override
+    public void write(B buf) {
+        write(buf, null);
+    }
+
     /**
      * 关闭会话
      */
@@ -32,6 +32,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
@@ -67,6 +68,8 @@ public abstract class NettyEndPoint<IN, OUT> implements EndPoint<IN, OUT> {
 
     private Session<OUT, EventLoop> endPointSession;
     private int autoReconnect;
+    private int flushConsolidation;
+    private boolean consolidateWhenNoReadInProgress;
 
     static {
         if (Epoll.isAvailable()) {
@@ -179,10 +182,26 @@ public abstract class NettyEndPoint<IN, OUT> implements EndPoint<IN, OUT> {
     }
 
     public NettyEndPoint(String name, NettyEndPointType type, int autoReconnect, int timeoutSeconds) {
+        this(name, type, autoReconnect, timeoutSeconds, 0, false);
+    }
+
+    /**
+     * 构造
+     *
+     * @param name                            名称
+     * @param type                            类型
+     * @param autoReconnect                   自动重连间隔(秒)
+     * @param timeoutSeconds                  读超时(秒)
+     * @param flushConsolidation              合并刷新，最多合并多少次flush后真正刷新一次(小于等于0不开启)
+     * @param consolidateWhenNoReadInProgress 不在读取过程中的flush是否也合并(合并后由EventLoop稍后统一刷新)
+     */
+    public NettyEndPoint(String name, NettyEndPointType type, int autoReconnect, int timeoutSeconds, int flushConsolidation, boolean consolidateWhenNoReadInProgress) {
         Conditions.notNull(name, "name");
         this.name = name;
         this.autoReconnect = autoReconnect;
         this.type = type;
+        this.flushConsolidation = flushConsolidation;
+        this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
         if (type.server()) {
             ServerBootstrap serverBootstrap = new ServerBootstrap().group(type.local() ? new DefaultEventLoopGroup(1) : bossGroup, type.local() ? new DefaultEventLoop() : workerGroup).channel(type.local() ? LocalServerChannel.class : serverChannelClass);
             if (!type.local()) {
@@ -225,6 +244,10 @@ public abstract class NettyEndPoint<IN, OUT> implements EndPoint<IN, OUT> {
     }
 
     private void initPipeline(ChannelPipeline pipeline, int timeoutSeconds) {
+        if (flushConsolidation > 0) {
+            // 读取过程中的flush合并到读取结束时一次写出
+            pipeline.addLast(new FlushConsolidationHandler(flushConsolidation, consolidateWhenNoReadInProgress));
+        }
         if (timeoutSeconds > 0) {
             pipeline.addLast(new ReadTimeoutHandler(timeoutSeconds));
         }
@@ -234,6 +257,18 @@ public abstract class NettyEndPoint<IN, OUT> implements EndPoint<IN, OUT> {
         pipeline.addLast(new ChannelStateHandler());
     }
 
+    /**
+     * 在通道上将端点外部可传输信息转化为内部可读信息(可使用通道自己的内存分配器)
+     *
+     * @param ctx
+     * @param out
+     * @return
+     * @throws Exception
+     */
+    protected IN toInputFinal(ChannelHandlerContext ctx, OUT out) throws Exception {
+        return toInputFinal(out);
+    }
+
     @Override
     public String name() {
         return this.name;
@@ -275,7 +310,7 @@ public abstract class NettyEndPoint<IN, OUT> implements EndPoint<IN, OUT> {
 
         @Override
         protected void encode(ChannelHandlerContext ctx, OUT msg, List<Object> out) throws Exception {
-            IN i = NettyEndPoint.this.toInputFinal(msg);
+            IN i = NettyEndPoint.this.toInputFinal(ctx, msg);
             out.add(i);
         }
 
@@ -54,6 +54,30 @@ public class NettySession<M> extends AbstractSession<M, EventLoop> {
     }
 
 
+    /**
+     * 写出数据但不立即刷新
+     *
+     * @param buf
+     * @param resultCallback
+     */
+    @Override
+    public void write(M buf, Proc2<Boolean, Throwable> resultCallback) {
+        Conditions.notNull(buf, "buf");
+        if (!writable()) {
+            Procs.invoke(resultCallback, false, new BinaryMessageIOException("unwritable"));
+            return;
+        }
+        this.channel.write(buf).addListener((ChannelFutureListener) arg0 -> Procs.invoke(resultCallback, arg0.isSuccess(), arg0.cause()));
+    }
+
+    /**
+     * 刷新
+     */
+    @Override
+    public void flush() {
+        this.channel.flush();
+    }
+
     /**
      * 是否可写
      *
@@ -95,6 +119,15 @@ public class NettySession<M> extends AbstractSession<M, EventLoop> {
         return this.channel.localAddress();
     }
 
+    /**
+     * 底层通道
+     *
+     * @return
+     */
+    public Channel channel() {
+        return this.channel;
+    }
+
     @Override
     public EventLoop thread() {
         return channel.eventLoop();
@@ -45,6 +45,26 @@ public interface Session<B, T> extends Actor.Place<T> {
      */
     void writeNow(B buf);
 
+    /**
+     * 写出数据但不立即刷新，需调用{@link #flush()}或等待通道合并刷新
+     *
+     * @param buf
+     * @param resultCallback
+     */
+    void write(B buf, Proc2<Boolean, Throwable> resultCallback);
+
+    /**
+     * 写出数据但不立即刷新
+     *
+     * @param buf
+     */
+    void write(B buf);
+
+    /**
+     * 刷新之前写出的所有数据
+     */
+    void flush();
+
     /**
      * 是否可写
      *
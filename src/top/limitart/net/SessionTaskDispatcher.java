@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import top.limitart.base.Conditions;
+import top.limitart.base.Func1;
+import top.limitart.base.ThreadSafe;
+import top.limitart.collections.ConcurrentHashSet;
+import top.limitart.concurrent.TaskQueue;
+import top.limitart.concurrent.TaskQueueGroup;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话任务分发器
+ * <p>
+ * 按会话的键把会话固定到{@link TaskQueueGroup}中的一个任务队列上，同一会话的任务保持顺序但不在EventLoop上执行。
+ * 某个队列积压的任务超过高水位时暂停向其投递任务的会话读取(autoRead)，降到低水位后恢复
+ *
+ * @param <M> 会话传递消息的介质
+ * @author hank
+ */
+@ThreadSafe
+public class SessionTaskDispatcher<M> {
+    private final TaskQueueGroup group;
+    private final Func1<Session<M, EventLoop>, Long> keyOf;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final Map<TaskQueue, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * @param group         业务线程组
+     * @param keyOf         会话的键(如玩家ID)，为空或返回空则按会话对象本身分配
+     * @param highWaterMark 队列积压任务数高于此值时暂停读取，小于等于0不限制
+     */
+    public SessionTaskDispatcher(TaskQueueGroup group, Func1<Session<M, EventLoop>, Long> keyOf, int highWaterMark) {
+        this.group = Conditions.notNull(group, "group");
+        this.keyOf = keyOf;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = highWaterMark / 2;
+    }
+
+    /**
+     * 把会话的任务投递到它所属的队列
+     *
+     * @param session
+     * @param task
+     */
+    public void dispatch(Session<M, EventLoop> session, Runnable task) {
+        TaskQueue queue = queueOf(session);
+        Lane lane = lanes.computeIfAbsent(queue, k -> new Lane());
+        int pending = lane.pending.incrementAndGet();
+        try {
+            queue.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    lane.done();
+                }
+            });
+        } catch (RuntimeException e) {
+            lane.done();
+            throw e;
+        }
+        if (highWaterMark > 0 && pending > highWaterMark && session instanceof NettySession) {
+            lane.pause(((NettySession<M>) session).channel());
+        }
+    }
+
+    /**
+     * 会话所属的队列
+     *
+     * @param session
+     * @return
+     */
+    public TaskQueue queueOf(Session<M, EventLoop> session) {
+        // 在IO线程上调用，返回空的键不能自动拆箱抛异常
+        Long key = keyOf != null ? keyOf.run(session) : null;
+        return group.get(key != null ? key : System.identityHashCode(session));
+    }
+
+    /**
+     * 队列当前积压的任务数
+     *
+     * @param queue
+     * @return
+     */
+    public int pending(TaskQueue queue) {
+        Lane lane = lanes.get(queue);
+        return lane == null ? 0 : lane.pending.get();
+    }
+
+    private class Lane {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Set<Channel> paused = new ConcurrentHashSet<>();
+
+        private void pause(Channel channel) {
+            // 暂停和恢复互斥，否则恢复可能发生在加入集合和关闭autoRead之间，通道再也不会恢复读取
+            synchronized (this) {
+                if (!paused.add(channel)) {
+                    return;
+                }
+                channel.config().setAutoRead(false);
+            }
+            //暂停时队列可能已经消化完了
+            if (pending.get() <= lowWaterMark) {
+                resume();
+            }
+        }
+
+        private void done() {
+            if (pending.decrementAndGet() <= lowWaterMark && !paused.isEmpty()) {
+                resume();
+            }
+        }
+
+        private synchronized void resume() {
+            Iterator<Channel> iterator = paused.iterator();
+            while (iterator.hasNext()) {
+                Channel channel = iterator.next();
+                iterator.remove();
+                channel.config().setAutoRead(true);
+            }
+        }
+    }
+}
@@ -16,20 +16,30 @@
 package top.limitart.net.binary;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import top.limitart.base.*;
+import top.limitart.concurrent.TaskQueueGroup;
 import top.limitart.mapping.Router;
 import top.limitart.net.NettyEndPoint;
 import top.limitart.net.NettyEndPointType;
+import top.limitart.net.NettySession;
 import top.limitart.net.Session;
+import top.limitart.net.SessionTaskDispatcher;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author hank
@@ -39,12 +49,14 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
     private static Logger LOGGER = LoggerFactory.getLogger(BinaryEndPoint.class);
     private final BinaryDecoder decoder;
     private final BinaryEncoder encoder;
-    private final Map<Short, Class<BinaryMessage>> id2Msg = new ConcurrentHashMap<>();
+    private final BinaryMessageTable messageTable = new BinaryMessageTable();
 
     private final Router<BinaryMessage, BinaryRequestParam> router;
     private final Proc3<Session<BinaryMessage, EventLoop>, BinaryMessage, Router<BinaryMessage, BinaryRequestParam>> onMessageIn;
     private final Proc2<Session<BinaryMessage, EventLoop>, Boolean> onConnected;
     private final Proc2<Session<BinaryMessage, EventLoop>, Throwable> onExceptionThrown;
+    private final boolean recycleMessage;
+    private final SessionTaskDispatcher<BinaryMessage> dispatcher;
 
     public static Builder client() {
         return builder(false);
@@ -63,22 +75,25 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
     }
 
     public BinaryEndPoint(Builder builder) {
-        super(builder.name, builder.type, builder.autoReconnect, builder.timeoutSeconds);
+        super(builder.name, builder.type, builder.autoReconnect, builder.timeoutSeconds, builder.flushConsolidation, builder.consolidateWhenNoReadInProgress);
         this.decoder = Conditions.notNull(builder.decoder, "decoder");
         this.encoder = Conditions.notNull(builder.encoder, "encoder");
         this.router = Conditions.notNull(builder.router, "router");
         this.onMessageIn = builder.onMessageIn;
         this.onConnected = builder.onConnected;
         this.onExceptionThrown = builder.onExceptionThrown;
+        this.recycleMessage = builder.recycleMessage;
+        this.dispatcher = builder.dispatchGroup == null ? null : new SessionTaskDispatcher<>(builder.dispatchGroup, builder.dispatchKey, builder.dispatchHighWaterMark);
         //初始化消息
         router.foreachRequestClass(c -> {
-            BinaryMessage binaryMessage = null;
             try {
-                binaryMessage = router.requestInstance(c);
+                BinaryMessage binaryMessage = router.requestInstance(c);
+                messageTable.register(binaryMessage.id(), c, router.invoker(c));
             } catch (Exception e) {
                 LOGGER.error("mapping message id error", e);
             }
-            id2Msg.put(binaryMessage.id(), c);
+            //预先生成编解码器
+            BinaryMetaCodec.get(c);
         });
     }
 
@@ -106,6 +121,28 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
     @Override
     protected void messageReceived(Session<BinaryMessage, EventLoop> session, Object arg) throws Exception {
         BinaryMessage msg = (BinaryMessage) arg;
+        if (dispatcher != null) {
+            //消息交给其他线程处理，不再回收
+            dispatcher.dispatch(session, () -> {
+                try {
+                    handleMessage(session, msg);
+                } catch (Exception e) {
+                    LOGGER.error(session.remoteAddress() + " cause:", e);
+                    Procs.invoke(onExceptionThrown, session, e);
+                }
+            });
+            return;
+        }
+        try {
+            handleMessage(session, msg);
+        } finally {
+            if (recycleMessage) {
+                BinaryMetaPool.recycle(msg);
+            }
+        }
+    }
+
+    private void handleMessage(Session<BinaryMessage, EventLoop> session, BinaryMessage msg) {
         if (onMessageIn != null) {
             try {
                 onMessageIn.run(session, msg, router);
@@ -114,11 +151,13 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
                 Procs.invoke(onExceptionThrown, session, e);
             }
         } else {
-            router.request(msg, () ->
-                    new BinaryRequestParam(session, msg) {
-                    }, i -> i.invoke());
-            LOGGER.warn("can not find handler to deal msg!!!");
-//            throw new IllegalArgumentException("can not find handler to deal msg");
+            BinaryMessageTable.Slot slot = messageTable.get(msg.id());
+            if (slot != null && slot.invoker() != null) {
+                slot.invoker().invoke(new BinaryRequestParam(session, msg) {
+                });
+            } else {
+                LOGGER.warn("can not find handler to deal msg!!!");
+            }
         }
     }
 
@@ -127,13 +166,15 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
     public BinaryMessage toOutputFinal(ByteBuf byteBuf) throws Exception {
         // 消息id
         short messageId = decoder.readMessageId(byteBuf);
-        Class<BinaryMessage> aClass = id2Msg.get(messageId);
-        if (aClass == null) {
+        BinaryMessageTable.Slot slot = messageTable.get(messageId);
+        if (slot == null) {
             throw new BinaryMessageCodecException(name() + " message empty,id:" + BinaryMessages.ID2String(messageId));
         }
-        BinaryMessage msg = router.requestInstance(aClass);
+        BinaryMessage msg = recycleMessage ? BinaryMetaPool.take(slot.messageClass()) : null;
         if (msg == null) {
-            throw new BinaryMessageCodecException(name() + " message empty,id:" + BinaryMessages.ID2String(messageId));
+            msg = slot.newInstance();
+            // 只有本端点解码的消息(包括嵌套的元数据)从对象池获取
+            msg.pooling(recycleMessage);
         }
         msg.buffer(byteBuf);
         try {
@@ -148,30 +189,116 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
 
     @Override
     public ByteBuf toInputFinal(BinaryMessage msg) throws Exception {
-        ByteBuf buffer = Unpooled.buffer();
-        encoder.beforeWriteBody(buffer, msg.id());
-        msg.buffer(buffer);
+        return toInputFinal(PooledByteBufAllocator.DEFAULT, msg);
+    }
+
+    @Override
+    protected ByteBuf toInputFinal(ChannelHandlerContext ctx, BinaryMessage msg) throws Exception {
+        return toInputFinal(ctx.alloc(), msg);
+    }
+
+    /**
+     * 使用指定分配器编码消息，按此类消息以往的编码长度预分配缓冲区，避免反复扩容拷贝
+     *
+     * @param allocator
+     * @param msg
+     * @return
+     */
+    public ByteBuf toInputFinal(ByteBufAllocator allocator, BinaryMessage msg) {
+        BinaryMetaCodec codec = BinaryMetaCodec.get(msg.getClass());
+        ByteBuf buffer = allocator.ioBuffer(codec.sizeEstimate());
         try {
-            msg.encode();
-        } catch (IllegalAccessException | BinaryMessageCodecException e) {
-            LOGGER.error("message encode error!", e);
+            encoder.beforeWriteBody(buffer, msg.id());
+            msg.buffer(buffer);
+            try {
+                msg.encode();
+            } catch (IllegalAccessException | BinaryMessageCodecException e) {
+                LOGGER.error("message encode error!", e);
+            }
+            encoder.afterWriteBody(buffer);
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        } finally {
+            msg.buffer(null);
         }
-        encoder.afterWriteBody(buffer);
-        msg.buffer(null);
+        codec.recordSize(buffer.readableBytes());
         return buffer;
     }
 
+    /**
+     * 广播消息
+     * 消息只编码一次，按会话所在的EventLoop分组，每个EventLoop只提交一个任务，写完该组所有会话后统一flush
+     *
+     * @param msg
+     * @param sessions
+     */
+    public void broadcast(BinaryMessage msg, Collection<? extends Session<BinaryMessage, EventLoop>> sessions) {
+        Conditions.notNull(msg, "msg");
+        Conditions.notNull(sessions, "sessions");
+        if (sessions.isEmpty()) {
+            return;
+        }
+        Map<EventLoop, List<Channel>> groups = new HashMap<>();
+        for (Session<BinaryMessage, EventLoop> session : sessions) {
+            if (session instanceof NettySession) {
+                groups.computeIfAbsent(session.thread(), k -> new ArrayList<>()).add(((NettySession) session).channel());
+            } else {
+                session.writeNow(msg);
+            }
+        }
+        if (groups.isEmpty()) {
+            return;
+        }
+        ByteBuf buffer = toInputFinal(PooledByteBufAllocator.DEFAULT, msg);
+        try {
+            for (Map.Entry<EventLoop, List<Channel>> entry : groups.entrySet()) {
+                List<Channel> channels = entry.getValue();
+                ByteBuf shared = buffer.retainedDuplicate();
+                try {
+                    entry.getKey().execute(() -> broadcast0(shared, channels));
+                } catch (RejectedExecutionException e) {
+                    shared.release();
+                    LOGGER.error("broadcast rejected by {}", entry.getKey(), e);
+                }
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void broadcast0(ByteBuf shared, List<Channel> channels) {
+        try {
+            for (Channel channel : channels) {
+                if (channel.isActive() && channel.isWritable()) {
+                    channel.write(shared.retainedDuplicate(), channel.voidPromise());
+                }
+            }
+            for (Channel channel : channels) {
+                channel.flush();
+            }
+        } finally {
+            shared.release();
+        }
+    }
+
     public static class Builder {
         private String name;
         private NettyEndPointType type;
         private int autoReconnect;
         private int timeoutSeconds;
+        private int flushConsolidation;
+        private boolean consolidateWhenNoReadInProgress;
         private BinaryDecoder decoder;
         private BinaryEncoder encoder;
         private Router<BinaryMessage, BinaryRequestParam> router;
         private Proc3<Session<BinaryMessage, EventLoop>, BinaryMessage, Router<BinaryMessage, BinaryRequestParam>> onMessageIn;
         private Proc2<Session<BinaryMessage, EventLoop>, Boolean> onConnected;
         private Proc2<Session<BinaryMessage, EventLoop>, Throwable> onExceptionThrown;
+        private boolean recycleMessage;
+        private TaskQueueGroup dispatchGroup;
+        private Func1<Session<BinaryMessage, EventLoop>, Long> dispatchKey;
+        private int dispatchHighWaterMark;
 
         public Builder(boolean server) {
             this(server ? NettyEndPointType.defaultServer() : NettyEndPointType.defaultClient());
@@ -276,6 +403,50 @@ public class BinaryEndPoint extends NettyEndPoint<ByteBuf, BinaryMessage> {
             return this;
         }
 
+        /**
+         * 回收解码出的消息(包括嵌套的元数据)，处理方法返回后放回当前线程的对象池中复用
+         * 开启后处理方法不能在返回后继续持有消息或将其交给其他线程
+         *
+         * @param recycleMessage
+         * @return
+         */
+        @Optional
+        public Builder recycleMessage(boolean recycleMessage) {
+            this.recycleMessage = recycleMessage;
+            return this;
+        }
+
+        /**
+         * 按会话分发消息到业务线程组，同一会话的消息在同一个线程中按顺序处理，不占用EventLoop
+         * 开启后{@link #recycleMessage(boolean)}不再生效
+         *
+         * @param group         业务线程组
+         * @param key           会话的键(如玩家ID)，为空则按会话对象本身分配
+         * @param highWaterMark 会话所在线程积压的消息数高于此值时暂停读取该会话，小于等于0不限制
+         * @return
+         */
+        @Optional
+        public Builder dispatch(TaskQueueGroup group, Func1<Session<BinaryMessage, EventLoop>, Long> key, int highWaterMark) {
+            this.dispatchGroup = group;
+            this.dispatchKey = key;
+            this.dispatchHighWaterMark = highWaterMark;
+            return this;
+        }
+
+        /**
+         * 合并刷新，处理一次读取时产生的多次写出只在读取结束时刷新一次
+         *
+         * @param explicitFlushAfterFlushes       最多积攒多少次flush后强制刷新
+         * @param consolidateWhenNoReadInProgress 非读取过程中(如其他线程)的flush是否也合并
+         * @return
+         */
+        @Optional
+        public Builder flushConsolidation(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+            this.flushConsolidation = explicitFlushAfterFlushes;
+            this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+            return this;
+        }
+
         /**
          * 自动重连尝试间隔(秒)
          *
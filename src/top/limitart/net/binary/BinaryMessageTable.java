@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import top.limitart.base.Nullable;
+import top.limitart.mapping.MapperInvoker;
+import top.limitart.reflectasm.ConstructorAccess;
+
+/**
+ * 消息ID分发表
+ * <p>
+ * 消息ID由{@link BinaryMessages#createID(int, int)}构造，高8位为模块ID，低8位为内容ID。
+ * 这里按模块ID和内容ID做两级数组索引，查找时不需要装箱和哈希，只在端点启动时构建一次，之后只读
+ *
+ * @author hank
+ */
+public final class BinaryMessageTable {
+    private static final int SLOT_SIZE = 256;
+    private final Slot[][] slots = new Slot[SLOT_SIZE][];
+    private int size;
+
+    /**
+     * 注册消息
+     *
+     * @param id
+     * @param clazz
+     * @param invoker 处理方法调用器
+     * @throws BinaryMessageIDDuplicatedException
+     */
+    public Slot register(short id, Class<BinaryMessage> clazz, @Nullable MapperInvoker<BinaryRequestParam> invoker) throws BinaryMessageIDDuplicatedException {
+        int mod = modIndex(id);
+        Slot[] contents = slots[mod];
+        if (contents == null) {
+            contents = slots[mod] = new Slot[SLOT_SIZE];
+        }
+        int content = contentIndex(id);
+        if (contents[content] != null) {
+            throw new BinaryMessageIDDuplicatedException(id);
+        }
+        Slot slot = new Slot(id, clazz, ConstructorAccess.get(clazz), invoker);
+        contents[content] = slot;
+        ++size;
+        return slot;
+    }
+
+    /**
+     * 查找消息槽
+     *
+     * @param id
+     * @return
+     */
+    public @Nullable
+    Slot get(short id) {
+        Slot[] contents = slots[modIndex(id)];
+        if (contents == null) {
+            return null;
+        }
+        return contents[contentIndex(id)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int modIndex(short id) {
+        return (id >> 8) & 0xFF;
+    }
+
+    private static int contentIndex(short id) {
+        return id & 0xFF;
+    }
+
+    /**
+     * 消息槽(消息类型及其预先生成的构造器、处理方法调用器)
+     */
+    public static final class Slot {
+        private final short id;
+        private final Class<BinaryMessage> clazz;
+        private final ConstructorAccess<BinaryMessage> factory;
+        private final MapperInvoker<BinaryRequestParam> invoker;
+
+        private Slot(short id, Class<BinaryMessage> clazz, ConstructorAccess<BinaryMessage> factory, MapperInvoker<BinaryRequestParam> invoker) {
+            this.id = id;
+            this.clazz = clazz;
+            this.factory = factory;
+            this.invoker = invoker;
+        }
+
+        public short id() {
+            return id;
+        }
+
+        public Class<BinaryMessage> messageClass() {
+            return clazz;
+        }
+
+        /**
+         * 创建新的消息实例
+         *
+         * @return
+         */
+        public BinaryMessage newInstance() {
+            return factory.newInstance();
+        }
+
+        /**
+         * 处理方法调用器
+         *
+         * @return
+         */
+        public @Nullable
+        MapperInvoker<BinaryRequestParam> invoker() {
+            return invoker;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package top.limitart.net.binary;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.CorruptedFrameException;
 import top.limitart.reflectasm.ConstructorAccess;
 import top.limitart.reflectasm.FieldAccess;
@@ -41,6 +42,9 @@ public class BinaryMeta {
     private final static Map<Class<? extends BinaryMeta>, ConstructorAccess> messageMetaCache = new ConcurrentHashMap<>();
     private final static Map<Class<? extends BinaryMeta>, FieldAccess> messageMetaFieldCache = new ConcurrentHashMap<>();
     private ByteBuf buffer;
+    private boolean recycled;
+    // 解码嵌套元数据时是否从对象池获取，只有开启回收的消息才会设置，嵌套的实例继承
+    private boolean pooling;
 
     /**
      * 设置是否开启int和long压缩
@@ -52,6 +56,17 @@ public class BinaryMeta {
     }
 
     public void encode() throws IllegalArgumentException, IllegalAccessException, BinaryMessageCodecException {
+        BinaryMetaCodec.get(getClass()).encode(this);
+    }
+
+    /**
+     * 反射方式编码(无法生成字节码编解码器时使用)
+     *
+     * @throws IllegalArgumentException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    void reflectEncode() throws IllegalArgumentException, IllegalAccessException, BinaryMessageCodecException {
         FieldAccess fieldAccess = getFieldAccess();
         Field[] fields = fieldAccess.getFields();
         for (Field temp : fields) {
@@ -270,6 +285,8 @@ public class BinaryMeta {
                 putMessageMeta(next);
             } else if (type == String.class) {
                 putString((String) object);
+            } else if (type == BinaryPayload.class) {
+                putPayload((BinaryPayload) object);
             } else {
                 throw new BinaryMessageCodecException(getClass()
                         + " type error(non MessageMeta field must be primitive(or it's box object),array or List. array's component  and List's generic param as the same as non MessageMeta rule ):"
@@ -279,6 +296,17 @@ public class BinaryMeta {
     }
 
     public void decode() throws IllegalArgumentException, IllegalAccessException, BinaryMessageCodecException {
+        BinaryMetaCodec.get(getClass()).decode(this);
+    }
+
+    /**
+     * 反射方式解码(无法生成字节码编解码器时使用)
+     *
+     * @throws IllegalArgumentException
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    void reflectDecode() throws IllegalArgumentException, IllegalAccessException, BinaryMessageCodecException {
         FieldAccess fieldAccess = getFieldAccess();
         Field[] fields = fieldAccess.getFields();
         for (Field temp : fields) {
@@ -448,6 +476,8 @@ public class BinaryMeta {
                 field.set(this, getMessageMeta((Class<? extends BinaryMeta>) type));
             } else if (type == String.class) {
                 field.set(this, getString());
+            } else if (type == BinaryPayload.class) {
+                field.set(this, getPayload());
             } else {
                 throw new BinaryMessageCodecException(getClass()
                         + " type error(non MessageMeta field must be primitive(or it's box object),array or List. array's component  and List's generic param as the same as non MessageMeta rule ):"
@@ -459,8 +489,7 @@ public class BinaryMeta {
     private FieldAccess getFieldAccess() {
         FieldAccess fieldAccess = messageMetaFieldCache.get(getClass());
         if (fieldAccess == null) {
-            fieldAccess = FieldAccess.get(getClass(), false, field -> !(ReflectionUtil.isStatic(field) || ReflectionUtil.isTransient(field)
-                    || ReflectionUtil.isFinal(field)));
+            fieldAccess = FieldAccess.get(getClass(), false, BinaryMeta::isCodecField);
             FieldAccess put = messageMetaFieldCache.putIfAbsent(getClass(), fieldAccess);
             if (put != null) {
                 fieldAccess = put;
@@ -469,6 +498,62 @@ public class BinaryMeta {
         return fieldAccess;
     }
 
+    /**
+     * 反射方式清空字段(回收到对象池时使用)
+     *
+     * @throws IllegalAccessException
+     */
+    void reflectReset() throws IllegalAccessException {
+        FieldAccess fieldAccess = getFieldAccess();
+        Field[] fields = fieldAccess.getFields();
+        for (Field field : fields) {
+            field.setAccessible(true);
+            Class<?> type = field.getType();
+            if (type.isPrimitive()) {
+                field.set(this, Array.get(Array.newInstance(type, 1), 0));
+                continue;
+            }
+            Object object = field.get(this);
+            if (object instanceof BinaryPayload) {
+                ((BinaryPayload) object).release();
+            } else if (object instanceof BinaryMeta) {
+                BinaryMetaPool.recycle((BinaryMeta) object);
+            } else if (object instanceof BinaryMeta[]) {
+                BinaryMetaPool.recycleAll((BinaryMeta[]) object);
+            } else if (object instanceof List) {
+                for (Object temp : (List) object) {
+                    if (temp instanceof BinaryMeta) {
+                        BinaryMetaPool.recycle((BinaryMeta) temp);
+                    }
+                }
+            }
+            field.set(this, null);
+        }
+    }
+
+    boolean recycled() {
+        return recycled;
+    }
+
+    void recycled(boolean recycled) {
+        this.recycled = recycled;
+    }
+
+    void pooling(boolean pooling) {
+        this.pooling = pooling;
+    }
+
+    /**
+     * 是否为参与编解码的字段
+     *
+     * @param field
+     * @return
+     */
+    static boolean isCodecField(Field field) {
+        return !(ReflectionUtil.isStatic(field) || ReflectionUtil.isTransient(field)
+                || ReflectionUtil.isFinal(field));
+    }
+
     public void buffer(ByteBuf buffer) {
         this.buffer = buffer;
     }
@@ -610,37 +695,77 @@ public class BinaryMeta {
     }
 
     /**
-     * 写入String类型
+     * 写入String类型(直接按UTF-8编码进缓冲区，不生成中间数组)
+     * 含代理字符时Netty对未配对代理字符的编码与{@link String#getBytes(java.nio.charset.Charset)}不一致，退回到先转成数组
      *
      * @param value
      */
     public final void putString(String value) {
         if (value == null) {
-            putByteArray(null);
-        } else if ("".equals(value)) {
-            putByteArray(new byte[0]);
-        } else {
+            putShort(-1);
+        } else if (hasSurrogate(value)) {
             byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-            putByteArray(bytes);
+            putShort(bytes.length);
+            buffer.writeBytes(bytes);
+        } else {
+            putShort(ByteBufUtil.utf8Bytes(value));
+            ByteBufUtil.writeUtf8(buffer, value);
         }
     }
 
+    private static boolean hasSurrogate(String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (Character.isSurrogate(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
-     * 读取String类型
+     * 读取String类型(直接从缓冲区按UTF-8解码，不生成中间数组)
      *
      * @return
      */
     public final String getString() {
-        byte[] bytes = getByteArray();
-        if (bytes == null) {
-            return null;
-        } else if (bytes.length == 0) {
-            return "";
+        short len = getShort();
+        switch (len) {
+            case -1:
+                return null;
+            case 0:
+                return "";
+            default:
+                return buffer.readCharSequence(len, StandardCharsets.UTF_8).toString();
+        }
+    }
+
+    /**
+     * 写入延迟解析的负载(格式与byte数组相同)
+     *
+     * @param payload
+     */
+    public final void putPayload(BinaryPayload payload) {
+        if (payload == null) {
+            putShort(-1);
         } else {
-            return new String(bytes, StandardCharsets.UTF_8);
+            putShort(payload.length());
+            payload.writeTo(buffer);
         }
     }
 
+    /**
+     * 读取延迟解析的负载，只保留缓冲区切片的引用，不拷贝
+     *
+     * @return
+     */
+    public final BinaryPayload getPayload() {
+        short len = getShort();
+        if (len == -1) {
+            return null;
+        }
+        return new BinaryPayload(buffer.readRetainedSlice(len));
+    }
+
     /**
      * 写入String列表
      *
@@ -1507,6 +1632,12 @@ public class BinaryMeta {
     }
 
     private <T extends BinaryMeta> T createInstance(Class<T> clazz) {
+        if (pooling) {
+            T pooled = BinaryMetaPool.take(clazz);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
         ConstructorAccess constructorAccess = messageMetaCache.get(clazz);
         if (constructorAccess == null) {
             constructorAccess = ConstructorAccess.get(clazz);
@@ -1515,7 +1646,9 @@ public class BinaryMeta {
                 constructorAccess = putIfAbsent;
             }
         }
-        return (T) constructorAccess.newInstance();
+        T instance = (T) constructorAccess.newInstance();
+        instance.pooling(pooling);
+        return instance;
     }
 
     public static void writeRawVarint64(ByteBuf buffer, long value) {
@@ -0,0 +1,673 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.util.ReflectionUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 二进制元数据编解码器
+ * <p>
+ * 每个{@link BinaryMeta}子类在第一次编解码时用ASM生成一个专用的编解码类，直接通过getfield/putfield读写字段并调用对应的put/get方法，
+ * 不再经过反射和装箱。字段或类不可访问(非public)、字段类型不支持时退回反射方式，行为与原先保持一致
+ *
+ * @author hank
+ */
+public abstract class BinaryMetaCodec {
+    private static Logger LOGGER = LoggerFactory.getLogger(BinaryMetaCodec.class);
+    private static final String META_INTERNAL = Type.getInternalName(BinaryMeta.class);
+    private static final String CODEC_INTERNAL = Type.getInternalName(BinaryMetaCodec.class);
+    private static final String POOL_INTERNAL = Type.getInternalName(BinaryMetaPool.class);
+    private static final String CODEC_METHOD_DESC = "(L" + META_INTERNAL + ";)V";
+    private final static Map<Class<? extends BinaryMeta>, BinaryMetaCodec> codecCache = new ConcurrentHashMap<>();
+    private static final int MIN_SIZE_ESTIMATE = 64;
+    // 编码长度估算(多线程下读到旧值无妨，不做同步)
+    private int sizeEstimate = MIN_SIZE_ESTIMATE;
+
+    /**
+     * 编码
+     *
+     * @param meta
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public abstract void encode(BinaryMeta meta) throws IllegalAccessException, BinaryMessageCodecException;
+
+    /**
+     * 解码
+     *
+     * @param meta
+     * @throws IllegalAccessException
+     * @throws BinaryMessageCodecException
+     */
+    public abstract void decode(BinaryMeta meta) throws IllegalAccessException, BinaryMessageCodecException;
+
+    /**
+     * 清空所有编解码字段，嵌套的元数据回收到{@link BinaryMetaPool}
+     *
+     * @param meta
+     * @throws IllegalAccessException
+     */
+    public abstract void reset(BinaryMeta meta) throws IllegalAccessException;
+
+    /**
+     * 此类型编码后的长度估算，用于预先分配足够的缓冲区
+     *
+     * @return
+     */
+    public int sizeEstimate() {
+        return sizeEstimate;
+    }
+
+    /**
+     * 记录一次实际编码长度(变大立即跟上，变小缓慢回落)
+     *
+     * @param size
+     */
+    public void recordSize(int size) {
+        int estimate = this.sizeEstimate;
+        if (size > estimate) {
+            this.sizeEstimate = size;
+        } else if (size < estimate) {
+            this.sizeEstimate = Math.max(MIN_SIZE_ESTIMATE, estimate - ((estimate - size) >> 3));
+        }
+    }
+
+    /**
+     * 获取(必要时生成)编解码器
+     *
+     * @param clazz
+     * @return
+     */
+    public static BinaryMetaCodec get(Class<? extends BinaryMeta> clazz) {
+        BinaryMetaCodec codec = codecCache.get(clazz);
+        if (codec == null) {
+            codec = create(clazz);
+            BinaryMetaCodec put = codecCache.putIfAbsent(clazz, codec);
+            if (put != null) {
+                codec = put;
+            }
+        }
+        return codec;
+    }
+
+    private static BinaryMetaCodec create(Class<? extends BinaryMeta> clazz) {
+        List<Field> fields = ReflectionUtil.getFields(clazz, false, BinaryMeta::isCodecField);
+        if (!Modifier.isPublic(clazz.getModifiers())) {
+            return new ReflectCodec();
+        }
+        FieldOp[] ops = new FieldOp[fields.size()];
+        for (int i = 0; i < ops.length; ++i) {
+            ops[i] = FieldOp.of(fields.get(i));
+            if (ops[i] == null) {
+                return new ReflectCodec();
+            }
+        }
+        try {
+            String codecClassName = clazz.getName() + "BinaryMetaCodec";
+            byte[] bytes = generate(codecClassName.replace('.', '/'), Type.getInternalName(clazz), ops);
+            Class<?> codecClass = new CodecClassLoader(clazz.getClassLoader()).define(codecClassName, bytes);
+            return (BinaryMetaCodec) codecClass.getConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            LOGGER.warn("generate codec for {} failed,use reflection instead", clazz.getName(), e);
+            return new ReflectCodec();
+        }
+    }
+
+    private static byte[] generate(String codecInternal, String ownerInternal, FieldOp[] ops) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, codecInternal, null, CODEC_INTERNAL, null);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, CODEC_INTERNAL, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        // encode
+        mv = cw.visitMethod(ACC_PUBLIC, "encode", CODEC_METHOD_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, ownerInternal);
+        mv.visitVarInsn(ASTORE, 2);
+        for (FieldOp op : ops) {
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitFieldInsn(GETFIELD, ownerInternal, op.field.getName(), Type.getDescriptor(op.field.getType()));
+            invoke(mv, op.writer);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        // decode
+        mv = cw.visitMethod(ACC_PUBLIC, "decode", CODEC_METHOD_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, ownerInternal);
+        mv.visitVarInsn(ASTORE, 2);
+        for (FieldOp op : ops) {
+            String fieldDesc = Type.getDescriptor(op.field.getType());
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ALOAD, 2);
+            Class<?>[] params = op.reader.getParameterTypes();
+            if (Modifier.isStatic(op.reader.getModifiers())) {
+                // 静态辅助方法(meta[,当前值])
+                if (params.length == 2) {
+                    mv.visitVarInsn(ALOAD, 2);
+                    mv.visitFieldInsn(GETFIELD, ownerInternal, op.field.getName(), fieldDesc);
+                }
+            } else if (params.length == 1) {
+                // 元数据需要传入具体类型
+                mv.visitLdcInsn(Type.getType(op.component));
+            }
+            invoke(mv, op.reader);
+            if (!op.field.getType().isPrimitive() && op.field.getType() != op.reader.getReturnType()) {
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(op.field.getType()));
+            }
+            mv.visitFieldInsn(PUTFIELD, ownerInternal, op.field.getName(), fieldDesc);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        // reset
+        mv = cw.visitMethod(ACC_PUBLIC, "reset", CODEC_METHOD_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, ownerInternal);
+        mv.visitVarInsn(ASTORE, 2);
+        for (FieldOp op : ops) {
+            Class<?> type = op.field.getType();
+            String fieldDesc = Type.getDescriptor(type);
+            if (op.component != null) {
+                // 嵌套元数据先回收
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitFieldInsn(GETFIELD, ownerInternal, op.field.getName(), fieldDesc);
+                String recycleDesc;
+                if (type.isArray()) {
+                    recycleDesc = "([L" + META_INTERNAL + ";)V";
+                } else if (List.class.isAssignableFrom(type)) {
+                    recycleDesc = "(Ljava/util/List;)V";
+                } else {
+                    recycleDesc = CODEC_METHOD_DESC;
+                }
+                mv.visitMethodInsn(INVOKESTATIC, POOL_INTERNAL, type.isArray() || List.class.isAssignableFrom(type) ? "recycleAll" : "recycle", recycleDesc, false);
+            } else if (type == BinaryPayload.class) {
+                // 负载释放缓冲区引用
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitFieldInsn(GETFIELD, ownerInternal, op.field.getName(), fieldDesc);
+                mv.visitMethodInsn(INVOKESTATIC, CODEC_INTERNAL, "releasePayload", "(" + fieldDesc + ")V", false);
+            }
+            mv.visitVarInsn(ALOAD, 2);
+            if (type == long.class) {
+                mv.visitInsn(LCONST_0);
+            } else if (type == float.class) {
+                mv.visitInsn(FCONST_0);
+            } else if (type == double.class) {
+                mv.visitInsn(DCONST_0);
+            } else if (type.isPrimitive()) {
+                mv.visitInsn(ICONST_0);
+            } else {
+                mv.visitInsn(ACONST_NULL);
+            }
+            mv.visitFieldInsn(PUTFIELD, ownerInternal, op.field.getName(), fieldDesc);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void invoke(MethodVisitor mv, Method method) {
+        mv.visitMethodInsn(Modifier.isStatic(method.getModifiers()) ? INVOKESTATIC : INVOKEVIRTUAL,
+                Type.getInternalName(method.getDeclaringClass()), method.getName(), Type.getMethodDescriptor(method), false);
+    }
+
+    /**
+     * 单个字段的读写方法
+     */
+    private static class FieldOp {
+        private final Field field;
+        private final Class<?> component;
+        private final Method writer;
+        private final Method reader;
+
+        private FieldOp(Field field, Class<?> component, Method writer, Method reader) {
+            this.field = field;
+            this.component = component;
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        /**
+         * 按照{@link BinaryMeta}反射编解码的规则匹配读写方法，不支持或无法直接访问时返回null
+         *
+         * @param field
+         * @return
+         */
+        private static FieldOp of(Field field) {
+            if (!Modifier.isPublic(field.getModifiers())) {
+                return null;
+            }
+            Class<?> type = field.getType();
+            try {
+                if (type.isPrimitive()) {
+                    String name = primitiveName(type);
+                    // byte short char的写入方法参数为int
+                    Class<?> param = type == byte.class || type == short.class || type == char.class ? int.class : type;
+                    return new FieldOp(field, null, meta("put" + name, param), meta("get" + name));
+                } else if (type.isArray()) {
+                    Class<?> component = type.getComponentType();
+                    if (component.isPrimitive()) {
+                        String name = primitiveName(component);
+                        return new FieldOp(field, null, meta("put" + name + "Array", type), meta("get" + name + "Array"));
+                    } else if (isMeta(component)) {
+                        return new FieldOp(field, component, meta("putMessageMetaArray", BinaryMeta[].class),
+                                meta("getMessageMetaArray", Class.class));
+                    } else if (component == String.class) {
+                        return new FieldOp(field, null, meta("putStringArray", String[].class), meta("getStringArray"));
+                    } else if (boxName(component) != null) {
+                        String name = boxName(component);
+                        return new FieldOp(field, null, helper("put" + name + "BoxArray", type),
+                                helper("get" + name + "BoxArray", type));
+                    }
+                } else if (List.class.isAssignableFrom(type)) {
+                    if (!(field.getGenericType() instanceof ParameterizedType)) {
+                        return null;
+                    }
+                    java.lang.reflect.Type arg = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+                    if (!(arg instanceof Class)) {
+                        return null;
+                    }
+                    Class<?> component = (Class<?>) arg;
+                    if (isMeta(component)) {
+                        return new FieldOp(field, component, meta("putMessageMetaList", List.class),
+                                meta("getMessageMetaList", Class.class));
+                    } else if (component == String.class) {
+                        return new FieldOp(field, null, meta("putStringList", List.class), meta("getStringList"));
+                    } else if (boxName(component) != null) {
+                        String name = boxName(component);
+                        return new FieldOp(field, null, meta("put" + name + "List", List.class), meta("get" + name + "List"));
+                    }
+                } else if (isMeta(type)) {
+                    return new FieldOp(field, type, meta("putMessageMeta", BinaryMeta.class), meta("getMessageMeta", Class.class));
+                } else if (type == String.class) {
+                    return new FieldOp(field, null, meta("putString", String.class), meta("getString"));
+                } else if (type == BinaryPayload.class) {
+                    return new FieldOp(field, null, meta("putPayload", BinaryPayload.class), meta("getPayload"));
+                } else if (boxName(type) != null) {
+                    String name = boxName(type);
+                    return new FieldOp(field, null, helper("put" + name + "Box", type), helper("get" + name + "Box"));
+                }
+            } catch (NoSuchMethodException e) {
+                LOGGER.warn("codec method missing for field {}", field, e);
+            }
+            return null;
+        }
+
+        private static boolean isMeta(Class<?> type) {
+            return type.getSuperclass() == BinaryMeta.class && Modifier.isPublic(type.getModifiers());
+        }
+
+        private static Method meta(String name, Class<?>... params) throws NoSuchMethodException {
+            return BinaryMeta.class.getMethod(name, params);
+        }
+
+        private static Method helper(String name, Class<?>... params) throws NoSuchMethodException {
+            Class<?>[] all = new Class<?>[params.length + 1];
+            all[0] = BinaryMeta.class;
+            System.arraycopy(params, 0, all, 1, params.length);
+            return BinaryMetaCodec.class.getMethod(name, all);
+        }
+
+        private static String primitiveName(Class<?> type) {
+            String name = type == int.class ? "Int" : type.getName();
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        private static String boxName(Class<?> type) {
+            if (type == Byte.class) {
+                return "Byte";
+            } else if (type == Short.class) {
+                return "Short";
+            } else if (type == Integer.class) {
+                return "Int";
+            } else if (type == Long.class) {
+                return "Long";
+            } else if (type == Float.class) {
+                return "Float";
+            } else if (type == Double.class) {
+                return "Double";
+            } else if (type == Character.class) {
+                return "Char";
+            } else if (type == Boolean.class) {
+                return "Boolean";
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 反射编解码器
+     */
+    private static class ReflectCodec extends BinaryMetaCodec {
+        @Override
+        public void encode(BinaryMeta meta) throws IllegalAccessException, BinaryMessageCodecException {
+            meta.reflectEncode();
+        }
+
+        @Override
+        public void decode(BinaryMeta meta) throws IllegalAccessException, BinaryMessageCodecException {
+            meta.reflectDecode();
+        }
+
+        @Override
+        public void reset(BinaryMeta meta) throws IllegalAccessException {
+            meta.reflectReset();
+        }
+    }
+
+    /**
+     * 生成类加载器(以消息所在加载器为父，保证能看到消息类和本类)
+     */
+    private static class CodecClassLoader extends ClassLoader {
+        private CodecClassLoader(ClassLoader parent) {
+            super(parent == null ? ClassLoader.getSystemClassLoader() : parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length, BinaryMetaCodec.class.getProtectionDomain());
+        }
+    }
+
+    // 以下为生成代码调用的辅助方法，空值规则与反射方式一致
+
+    public static void releasePayload(BinaryPayload payload) {
+        if (payload != null) {
+            payload.release();
+        }
+    }
+
+    public static void putByteBox(BinaryMeta meta, Byte value) {
+        meta.putByte(value == null ? 0 : value);
+    }
+
+    public static Byte getByteBox(BinaryMeta meta) {
+        return meta.getByte();
+    }
+
+    public static void putShortBox(BinaryMeta meta, Short value) {
+        meta.putShort(value == null ? 0 : value);
+    }
+
+    public static Short getShortBox(BinaryMeta meta) {
+        return meta.getShort();
+    }
+
+    public static void putIntBox(BinaryMeta meta, Integer value) {
+        meta.putInt(value == null ? 0 : value);
+    }
+
+    public static Integer getIntBox(BinaryMeta meta) {
+        return meta.getInt();
+    }
+
+    public static void putLongBox(BinaryMeta meta, Long value) {
+        meta.putLong(value == null ? 0L : value);
+    }
+
+    public static Long getLongBox(BinaryMeta meta) {
+        return meta.getLong();
+    }
+
+    public static void putFloatBox(BinaryMeta meta, Float value) {
+        meta.putFloat(value == null ? 0F : value);
+    }
+
+    public static Float getFloatBox(BinaryMeta meta) {
+        return meta.getFloat();
+    }
+
+    public static void putDoubleBox(BinaryMeta meta, Double value) {
+        meta.putDouble(value == null ? 0D : value);
+    }
+
+    public static Double getDoubleBox(BinaryMeta meta) {
+        return meta.getDouble();
+    }
+
+    public static void putCharBox(BinaryMeta meta, Character value) {
+        meta.putChar(value == null ? 0 : value);
+    }
+
+    public static Character getCharBox(BinaryMeta meta) {
+        return meta.getChar();
+    }
+
+    public static void putBooleanBox(BinaryMeta meta, Boolean value) {
+        meta.putBoolean(value != null && value);
+    }
+
+    public static Boolean getBooleanBox(BinaryMeta meta) {
+        return meta.getBoolean();
+    }
+
+    public static void putByteBoxArray(BinaryMeta meta, Byte[] value) {
+        if (value == null) {
+            meta.putByteArray(null);
+            return;
+        }
+        byte[] temp = new byte[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putByteArray(temp);
+    }
+
+    public static Byte[] getByteBoxArray(BinaryMeta meta, Byte[] current) {
+        byte[] temp = meta.getByteArray();
+        if (temp == null) {
+            return current;
+        }
+        Byte[] result = new Byte[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putShortBoxArray(BinaryMeta meta, Short[] value) {
+        if (value == null) {
+            meta.putShortArray(null);
+            return;
+        }
+        short[] temp = new short[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putShortArray(temp);
+    }
+
+    public static Short[] getShortBoxArray(BinaryMeta meta, Short[] current) {
+        short[] temp = meta.getShortArray();
+        if (temp == null) {
+            return current;
+        }
+        Short[] result = new Short[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putIntBoxArray(BinaryMeta meta, Integer[] value) {
+        if (value == null) {
+            meta.putIntArray(null);
+            return;
+        }
+        int[] temp = new int[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putIntArray(temp);
+    }
+
+    public static Integer[] getIntBoxArray(BinaryMeta meta, Integer[] current) {
+        int[] temp = meta.getIntArray();
+        if (temp == null) {
+            return current;
+        }
+        Integer[] result = new Integer[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putLongBoxArray(BinaryMeta meta, Long[] value) {
+        if (value == null) {
+            meta.putLongArray(null);
+            return;
+        }
+        long[] temp = new long[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putLongArray(temp);
+    }
+
+    public static Long[] getLongBoxArray(BinaryMeta meta, Long[] current) {
+        long[] temp = meta.getLongArray();
+        if (temp == null) {
+            return current;
+        }
+        Long[] result = new Long[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putFloatBoxArray(BinaryMeta meta, Float[] value) {
+        if (value == null) {
+            meta.putFloatArray(null);
+            return;
+        }
+        float[] temp = new float[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putFloatArray(temp);
+    }
+
+    public static Float[] getFloatBoxArray(BinaryMeta meta, Float[] current) {
+        float[] temp = meta.getFloatArray();
+        if (temp == null) {
+            return current;
+        }
+        Float[] result = new Float[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putDoubleBoxArray(BinaryMeta meta, Double[] value) {
+        if (value == null) {
+            meta.putDoubleArray(null);
+            return;
+        }
+        double[] temp = new double[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putDoubleArray(temp);
+    }
+
+    public static Double[] getDoubleBoxArray(BinaryMeta meta, Double[] current) {
+        double[] temp = meta.getDoubleArray();
+        if (temp == null) {
+            return current;
+        }
+        Double[] result = new Double[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putCharBoxArray(BinaryMeta meta, Character[] value) {
+        if (value == null) {
+            meta.putCharArray(null);
+            return;
+        }
+        char[] temp = new char[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] == null ? 0 : value[i];
+        }
+        meta.putCharArray(temp);
+    }
+
+    public static Character[] getCharBoxArray(BinaryMeta meta, Character[] current) {
+        char[] temp = meta.getCharArray();
+        if (temp == null) {
+            return current;
+        }
+        Character[] result = new Character[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+
+    public static void putBooleanBoxArray(BinaryMeta meta, Boolean[] value) {
+        if (value == null) {
+            meta.putBooleanArray(null);
+            return;
+        }
+        boolean[] temp = new boolean[value.length];
+        for (int i = 0; i < value.length; ++i) {
+            temp[i] = value[i] != null && value[i];
+        }
+        meta.putBooleanArray(temp);
+    }
+
+    public static Boolean[] getBooleanBoxArray(BinaryMeta meta, Boolean[] current) {
+        boolean[] temp = meta.getBooleanArray();
+        if (temp == null) {
+            return current;
+        }
+        Boolean[] result = new Boolean[temp.length];
+        for (int i = 0; i < temp.length; ++i) {
+            result[i] = temp[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.limitart.base.Conditions;
+import top.limitart.base.Nullable;
+import top.limitart.concurrent.ThreadLocalHolder;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制元数据对象池
+ * <p>
+ * 每个线程(一般即EventLoop)一个池，按类型存放回收的实例。回收时通过{@link BinaryMetaCodec#reset(BinaryMeta)}按字段布局清空实例，
+ * 并把嵌套的元数据(单个、列表、数组)一并回收。
+ * 没有全局开关，由使用方自己选择回收(如{@link BinaryEndPoint.Builder#recycleMessage(boolean)}只对该端点生效)，
+ * 解码时只有从池中取出或由开启回收的端点创建的消息才从池中获取嵌套的元数据。回收的对象不能再被任何地方持有
+ *
+ * @author hank
+ */
+public final class BinaryMetaPool {
+    private static Logger LOGGER = LoggerFactory.getLogger(BinaryMetaPool.class);
+    private static final ThreadLocalHolder<Map<Class<?>, ArrayDeque<BinaryMeta>>> POOLS = ThreadLocalHolder.create();
+    private static volatile int maxPerClass = 256;
+
+    private BinaryMetaPool() {
+    }
+
+    /**
+     * 每个线程每种类型最多缓存的实例数
+     *
+     * @param max
+     */
+    public static void maxPerClass(int max) {
+        Conditions.positive(max);
+        maxPerClass = max;
+    }
+
+    /**
+     * 从当前线程的池中取出一个实例
+     *
+     * @param clazz
+     * @return 池为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static @Nullable
+    <T extends BinaryMeta> T take(Class<T> clazz) {
+        Map<Class<?>, ArrayDeque<BinaryMeta>> pools = POOLS.get();
+        if (pools == null) {
+            return null;
+        }
+        ArrayDeque<BinaryMeta> pool = pools.get(clazz);
+        if (pool == null) {
+            return null;
+        }
+        BinaryMeta meta = pool.pollLast();
+        if (meta == null) {
+            return null;
+        }
+        meta.recycled(false);
+        return (T) meta;
+    }
+
+    /**
+     * 回收实例到当前线程的池中(重复回收会被忽略)
+     *
+     * @param meta
+     */
+    public static void recycle(@Nullable BinaryMeta meta) {
+        if (meta == null || meta.recycled()) {
+            return;
+        }
+        meta.recycled(true);
+        try {
+            BinaryMetaCodec.get(meta.getClass()).reset(meta);
+        } catch (IllegalAccessException e) {
+            LOGGER.error("reset {} error,drop it", meta.getClass().getName(), e);
+            return;
+        }
+        ArrayDeque<BinaryMeta> pool = POOLS.getWithInitialize(HashMap::new).computeIfAbsent(meta.getClass(), k -> new ArrayDeque<>());
+        if (pool.size() < maxPerClass) {
+            pool.addLast(meta);
+        }
+    }
+
+    /**
+     * 回收列表中的元数据
+     *
+     * @param metas
+     */
+    public static void recycleAll(@Nullable List<? extends BinaryMeta> metas) {
+        if (metas == null) {
+            return;
+        }
+        for (int i = 0; i < metas.size(); ++i) {
+            recycle(metas.get(i));
+        }
+    }
+
+    /**
+     * 回收数组中的元数据
+     *
+     * @param metas
+     */
+    public static void recycleAll(@Nullable BinaryMeta[] metas) {
+        if (metas == null) {
+            return;
+        }
+        for (BinaryMeta meta : metas) {
+            recycle(meta);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import top.limitart.base.Conditions;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 延迟解析的字节负载
+ * <p>
+ * 编码格式与byte[]、String字段相同。解码时只保留原缓冲区的一个引用切片，不拷贝也不解析，
+ * 访问{@link #bytes()}或{@link #string()}时才生成对应的值；原样转发时直接从切片写出。
+ * 解码得到的负载持有缓冲区引用，用完必须调用{@link #release()}(消息回收时会自动释放)
+ *
+ * @author hank
+ */
+public final class BinaryPayload {
+    private final ByteBuf content;
+    private byte[] bytes;
+    private String string;
+    private boolean released;
+
+    BinaryPayload(ByteBuf content) {
+        this.content = content;
+    }
+
+    /**
+     * 用字节数组构造(不拷贝)
+     *
+     * @param bytes
+     * @return
+     */
+    public static BinaryPayload of(byte[] bytes) {
+        Conditions.notNull(bytes, "bytes");
+        BinaryPayload payload = new BinaryPayload(Unpooled.wrappedBuffer(bytes));
+        payload.bytes = bytes;
+        return payload;
+    }
+
+    /**
+     * 用字符串构造(UTF-8)
+     *
+     * @param string
+     * @return
+     */
+    public static BinaryPayload of(String string) {
+        Conditions.notNull(string, "string");
+        BinaryPayload payload = of(string.getBytes(StandardCharsets.UTF_8));
+        payload.string = string;
+        return payload;
+    }
+
+    /**
+     * 字节长度
+     *
+     * @return
+     */
+    public int length() {
+        return content.readableBytes();
+    }
+
+    /**
+     * 底层内容的只读视图(不影响本负载的读写索引)
+     *
+     * @return
+     */
+    public ByteBuf content() {
+        return content.asReadOnly();
+    }
+
+    /**
+     * 字节数组(第一次访问时拷贝)
+     *
+     * @return
+     */
+    public byte[] bytes() {
+        if (bytes == null) {
+            bytes = ByteBufUtil.getBytes(content);
+        }
+        return bytes;
+    }
+
+    /**
+     * 按UTF-8解析的字符串(第一次访问时直接从缓冲区解析)
+     *
+     * @return
+     */
+    public String string() {
+        if (string == null) {
+            string = content.toString(StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+
+    /**
+     * 写入目标缓冲区
+     *
+     * @param buffer
+     */
+    void writeTo(ByteBuf buffer) {
+        buffer.writeBytes(content, content.readerIndex(), content.readableBytes());
+    }
+
+    /**
+     * 释放持有的缓冲区引用(重复释放会被忽略)
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            content.release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryPayload(" + length() + ")";
+    }
+}
@@ -25,6 +25,7 @@ import io.netty.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import top.limitart.base.*;
+import top.limitart.mapping.MapperInvoker;
 import top.limitart.mapping.Router;
 import top.limitart.net.NettyEndPoint;
 import top.limitart.net.NettyEndPointType;
@@ -65,7 +66,7 @@ public class ProtobufEndPoint extends NettyEndPoint<Message, Message> {
     }
 
     public ProtobufEndPoint(ProtobufEndPoint.Builder builder) {
-        super(builder.name, builder.type, builder.autoReconnect, builder.timeoutSeconds);
+        super(builder.name, builder.type, builder.autoReconnect, builder.timeoutSeconds, builder.flushConsolidation, builder.consolidateWhenNoReadInProgress);
         this.router = Conditions.notNull(builder.router, "router");
         this.onMessageIn = builder.onMessageIn;
         this.onConnected = builder.onConnected;
@@ -116,11 +117,13 @@ public class ProtobufEndPoint extends NettyEndPoint<Message, Message> {
                 Procs.invoke(onExceptionThrown, session, e);
             }
         } else {
-            router.request(msg, () ->
-                    new ProtobufRequestParam(session, msg) {
-                    }, i -> i.invoke());
-            LOGGER.warn("can not find handler to deal msg!!!");
-//            throw new IllegalArgumentException("can not find handler to deal msg");
+            MapperInvoker<ProtobufRequestParam> invoker = router.invoker((Class<Message>) msg.getClass());
+            if (invoker != null) {
+                invoker.invoke(new ProtobufRequestParam(session, msg) {
+                });
+            } else {
+                LOGGER.warn("can not find handler to deal msg!!!");
+            }
         }
     }
 
@@ -140,6 +143,8 @@ public class ProtobufEndPoint extends NettyEndPoint<Message, Message> {
         private NettyEndPointType type;
         private int autoReconnect;
         private int timeoutSeconds;
+        private int flushConsolidation;
+        private boolean consolidateWhenNoReadInProgress;
         private Router<Message, ProtobufRequestParam> router;
         private Proc3<Session<Message, EventLoop>, Message, Router<Message, ProtobufRequestParam>> onMessageIn;
         private Proc2<Session<Message, EventLoop>, Boolean> onConnected;
@@ -221,6 +226,20 @@ public class ProtobufEndPoint extends NettyEndPoint<Message, Message> {
         }
 
 
+        /**
+         * 合并刷新，处理一次读取时产生的多次写出只在读取结束时刷新一次
+         *
+         * @param explicitFlushAfterFlushes       最多积攒多少次flush后强制刷新
+         * @param consolidateWhenNoReadInProgress 非读取过程中(如其他线程)的flush是否也合并
+         * @return
+         */
+        @Optional
+        public Builder flushConsolidation(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+            this.flushConsolidation = explicitFlushAfterFlushes;
+            this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+            return this;
+        }
+
         /**
          * 自动重连尝试间隔(秒)
          *
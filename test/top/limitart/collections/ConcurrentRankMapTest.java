@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author hank
+ */
+public class ConcurrentRankMapTest {
+    private static final Comparator<TreeRankMapTest.Score> COMPARATOR = Comparator.comparingLong(TreeRankMapTest.Score::score).reversed();
+
+    @Test
+    public void testSameAsList() {
+        RankMap<Long, TreeRankMapTest.Score> list = RankMap.create(COMPARATOR, 300);
+        RankMap<Long, TreeRankMapTest.Score> concurrent = RankMap.createConcurrent(COMPARATOR, 300);
+        Random random = new Random(2);
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(1000);
+            long score = random.nextInt(200);
+            switch (random.nextInt(4)) {
+                case 0:
+                    list.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    concurrent.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    break;
+                case 1:
+                    list.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    concurrent.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    break;
+                case 2:
+                    Assert.assertEquals(list.remove(key) == null, concurrent.remove(key) == null);
+                    break;
+                default:
+                    Assert.assertEquals(list.getIndex(key), concurrent.getIndex(key));
+            }
+            Assert.assertEquals(list.size(), concurrent.size());
+        }
+        Assert.assertEquals(list.getAll(), concurrent.getAll());
+        Assert.assertEquals(list.getRange(10, 30), concurrent.getRange(10, 30));
+        Assert.assertEquals(list.getRange(-1, 1000), concurrent.getRange(-1, 1000));
+        Assert.assertEquals(list.getAt(7), concurrent.getAt(7));
+    }
+
+    @Test
+    public void testConcurrentRead() throws InterruptedException {
+        RankMap<Long, TreeRankMapTest.Score> rankMap = RankMap.createConcurrent(COMPARATOR, 500);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            int seed = i;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                while (running.get()) {
+                    rankMap.replaceOrPut(new TreeRankMapTest.Score(random.nextInt(1000), random.nextInt(10000)));
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                List<TreeRankMapTest.Score> page = rankMap.getRange(0, 99);
+                for (int i = 1; i < page.size(); ++i) {
+                    if (page.get(i - 1).score() < page.get(i).score()) {
+                        error.set("out of order:" + page);
+                    }
+                }
+                if (rankMap.size() > 500) {
+                    error.set("capacity exceeded:" + rankMap.size());
+                }
+            }
+        }));
+        threads.forEach(Thread::start);
+        Thread.sleep(500);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(error.get());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hank
+ */
+public class FrequencyWriteRankMapTest {
+    private static final Comparator<TreeRankMapTest.Score> COMPARATOR = Comparator.comparingLong(TreeRankMapTest.Score::score).reversed();
+
+    @Test
+    public void testSameAsListAfterFlush() {
+        RankMap<Long, TreeRankMapTest.Score> list = RankMap.create(COMPARATOR);
+        FrequencyWriteRankMap<Long, TreeRankMapTest.Score> batched = FrequencyWriteRankMap.create(COMPARATOR, 0, 64, 0, TimeUnit.MILLISECONDS);
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(1000);
+            long score = random.nextInt(200);
+            switch (random.nextInt(3)) {
+                case 0:
+                    list.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    batched.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    break;
+                case 1:
+                    list.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    batched.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    break;
+                default:
+                    list.remove(key);
+                    batched.remove(key);
+            }
+            if (i % 1000 == 0) {
+                batched.flush();
+                Assert.assertEquals(list.getAll(), batched.getAll());
+            }
+        }
+        batched.flush();
+        Assert.assertEquals(list.getAll(), batched.getAll());
+        Assert.assertEquals(list.getRange(10, 30), batched.getRange(10, 30));
+        for (TreeRankMapTest.Score score : list.getAll()) {
+            Assert.assertEquals(list.getIndex(score.key()), batched.getIndex(score.key()));
+        }
+    }
+
+    @Test
+    public void testDelayedPublish() throws InterruptedException {
+        FrequencyWriteRankMap<Long, TreeRankMapTest.Score> batched = FrequencyWriteRankMap.create(COMPARATOR, 0, 3, 50, TimeUnit.MILLISECONDS);
+        batched.replaceOrPut(new TreeRankMapTest.Score(1, 10));
+        batched.replaceOrPut(new TreeRankMapTest.Score(2, 20));
+        Assert.assertTrue(batched.containsKey(2L));
+        Assert.assertEquals(0, batched.size());
+        batched.replaceOrPut(new TreeRankMapTest.Score(3, 30));
+        Assert.assertEquals(3, batched.size());
+        Assert.assertEquals(0, batched.getIndex(3L));
+        batched.replaceOrPut(new TreeRankMapTest.Score(1, 40));
+        Assert.assertEquals(2, batched.getIndex(1L));
+        Thread.sleep(60);
+        Assert.assertEquals(0, batched.getIndex(1L));
+        Assert.assertEquals(0, batched.pendingSize());
+    }
+
+    @Test
+    public void testCapacity() {
+        FrequencyWriteRankMap<Long, TreeRankMapTest.Score> batched = FrequencyWriteRankMap.create(COMPARATOR, 2, 10, 0, TimeUnit.MILLISECONDS);
+        for (long i = 1; i <= 5; ++i) {
+            batched.replaceOrPut(new TreeRankMapTest.Score(i, i));
+        }
+        batched.flush();
+        Assert.assertEquals(2, batched.size());
+        Assert.assertEquals(5L, (long) batched.getAt(0).key());
+        Assert.assertFalse(batched.containsKey(1L));
+    }
+}
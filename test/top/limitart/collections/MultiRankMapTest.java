@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * @author hank
+ */
+public class MultiRankMapTest {
+    private static final Comparator<TreeRankMapTest.Score> BY_SCORE = Comparator.comparingLong(TreeRankMapTest.Score::score).reversed();
+    private static final Comparator<TreeRankMapTest.Score> BY_LAST_DIGIT = Comparator.comparingLong(s -> s.score() % 10);
+
+    @Test
+    public void testSameAsSingle() {
+        MultiRankMap<Long, TreeRankMapTest.Score> multi = MultiRankMap.create(BY_SCORE, BY_LAST_DIGIT);
+        RankMap<Long, TreeRankMapTest.Score> byScore = RankMap.create(BY_SCORE);
+        RankMap<Long, TreeRankMapTest.Score> byDigit = RankMap.create(BY_LAST_DIGIT);
+        Random random = new Random(4);
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(500);
+            long score = random.nextInt(300);
+            switch (random.nextInt(4)) {
+                case 0:
+                    multi.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    byScore.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    byDigit.replaceOrPut(new TreeRankMapTest.Score(key, score));
+                    break;
+                case 1:
+                    multi.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    byScore.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    byDigit.updateOrPut(key, s -> s.setScore(score), () -> new TreeRankMapTest.Score(key, 0));
+                    break;
+                case 2:
+                    multi.remove(key);
+                    byScore.remove(key);
+                    byDigit.remove(key);
+                    break;
+                default:
+                    Assert.assertEquals(byScore.getIndex(key), multi.getIndex(BY_SCORE, key));
+                    Assert.assertEquals(byDigit.getIndex(key), multi.getIndex(BY_LAST_DIGIT, key));
+            }
+            Assert.assertEquals(byScore.size(), multi.size());
+        }
+        Assert.assertEquals(byScore.getAll(), multi.getAll(BY_SCORE));
+        // 单排行在比较结果相同时保留旧对象，这里只比较键的顺序
+        Assert.assertEquals(keys(byDigit.getAll()), keys(multi.getAll(BY_LAST_DIGIT)));
+        Assert.assertEquals(byScore.getRange(5, 20), multi.getRange(BY_SCORE, 5, 20));
+        Assert.assertEquals(byDigit.getAt(3).key(), multi.getAt(BY_LAST_DIGIT, 3).key());
+    }
+
+    private static List<Long> keys(List<TreeRankMapTest.Score> scores) {
+        return scores.stream().map(TreeRankMapTest.Score::key).collect(Collectors.toList());
+    }
+}
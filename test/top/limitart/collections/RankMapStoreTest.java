@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import top.limitart.net.binary.BinaryMeta;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Comparator;
+
+/**
+ * @author hank
+ */
+public class RankMapStoreTest {
+    private static final Comparator<ScoreMeta> COMPARATOR = Comparator.comparingLong((ScoreMeta s) -> s.score).reversed();
+
+    @Test
+    public void testRecover() throws Exception {
+        File dir = Files.createTempDirectory("rank-store").toFile();
+        RankMap<Long, ScoreMeta> origin = RankMap.createTree(COMPARATOR);
+        try (RankMapStore<Long, ScoreMeta> store = new RankMapStore<>(dir, "score", ScoreMeta.class)) {
+            for (long i = 0; i < 1000; ++i) {
+                origin.replaceOrPut(new ScoreMeta(i, i * 31 % 997));
+            }
+            store.checkpoint(origin);
+            for (long i = 0; i < 100; ++i) {
+                ScoreMeta meta = new ScoreMeta(i, 5000 + i);
+                origin.replaceOrPut(meta);
+                store.logPut(meta);
+            }
+            store.logRemove(origin.remove(500L));
+            store.sync();
+        }
+        // 模拟最后一条只写了一半
+        try (RandomAccessFile log = new RandomAccessFile(new File(dir, "score.log"), "rw")) {
+            log.seek(log.length());
+            log.writeInt(100);
+            log.writeByte(1);
+        }
+        RankMap<Long, ScoreMeta> recovered = RankMap.create(COMPARATOR);
+        try (RankMapStore<Long, ScoreMeta> store = new RankMapStore<>(dir, "score", ScoreMeta.class)) {
+            Assert.assertEquals(101, store.recover(recovered));
+            Assert.assertEquals(origin.size(), recovered.size());
+            for (ScoreMeta meta : origin.getAll()) {
+                Assert.assertEquals(origin.getIndex(meta.key()), recovered.getIndex(meta.key()));
+                Assert.assertEquals(meta.score, recovered.get(meta.key()).score);
+            }
+            Assert.assertNull(recovered.get(500L));
+            store.checkpoint(recovered);
+            Assert.assertEquals(0, new File(dir, "score.log").length());
+        }
+        RankMap<Long, ScoreMeta> again = RankMap.createTree(COMPARATOR);
+        try (RankMapStore<Long, ScoreMeta> store = new RankMapStore<>(dir, "score", ScoreMeta.class)) {
+            Assert.assertEquals(0, store.recover(again));
+            Assert.assertEquals(recovered.size(), again.size());
+            Assert.assertEquals(recovered.getAt(0).key(), again.getAt(0).key());
+        }
+    }
+
+    public static class ScoreMeta extends BinaryMeta implements RankMap.LongRankObj {
+        public long id;
+        public long score;
+
+        public ScoreMeta() {
+        }
+
+        public ScoreMeta(long id, long score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public Long key() {
+            return id;
+        }
+    }
+}
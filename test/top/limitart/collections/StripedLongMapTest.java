@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author hank
+ */
+public class StripedLongMapTest {
+
+    @Test
+    public void testStriped() throws InterruptedException {
+        StripedLongMap<String> map = new StripedLongMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; ++j) {
+                    map.increment("kill");
+                    map.add("score", 2);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(40000, map.getCount("kill"));
+        Assert.assertEquals(80000, map.getCount("score"));
+        Assert.assertEquals(120000, map.sum());
+        LongMap<String> snapshot = map.snapshot();
+        Assert.assertEquals(40000, snapshot.getCount("kill"));
+        Assert.assertEquals(40000, map.remove("kill"));
+        Assert.assertEquals(80000, map.sum());
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testConcurrentRemove() throws InterruptedException {
+        StripedLongMap<Integer> map = new StripedLongMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 100000; ++j) {
+                    map.add(j & 7, 3);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        Thread remover = new Thread(() -> {
+            for (int j = 0; j < 20000; ++j) {
+                map.remove(j & 7);
+                if (j % 5000 == 0) {
+                    map.clear();
+                }
+            }
+        });
+        remover.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        remover.join();
+        long sum = 0;
+        for (int key = 0; key < 8; ++key) {
+            sum += map.getCount(key);
+        }
+        Assert.assertEquals(sum, map.sum());
+    }
+
+    @Test
+    public void testPrimitive() {
+        ConcurrentLongCountMap map = new ConcurrentLongCountMap(4, 4);
+        for (long key = -500; key < 500; ++key) {
+            Assert.assertEquals(1, map.incrementAndGet(key));
+            Assert.assertEquals(1, map.getAndAdd(key, 2));
+        }
+        Assert.assertEquals(1000, map.size());
+        Assert.assertEquals(3000, map.sum());
+        Assert.assertEquals(3, map.getCount(0));
+        for (long key = -500; key < 500; key += 2) {
+            Assert.assertEquals(3, map.remove(key));
+        }
+        Assert.assertEquals(500, map.size());
+        Assert.assertEquals(1500, map.sum());
+        for (long key = -499; key < 500; key += 2) {
+            Assert.assertEquals(3, map.getCount(key));
+            Assert.assertFalse(map.containsKey(key - 1));
+        }
+        Assert.assertEquals(3, map.putCount(1, Long.MAX_VALUE));
+        Assert.assertEquals(Long.MAX_VALUE, map.incrementAndGet(1));
+        Assert.assertEquals(500, map.snapshot().size());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hank
+ */
+public class TreeRankMapTest {
+    private static final Comparator<Score> COMPARATOR = Comparator.comparingLong(Score::score).reversed();
+
+    @Test
+    public void testSameAsList() {
+        RankMap<Long, Score> list = RankMap.create(COMPARATOR, 500);
+        RankMap<Long, Score> tree = RankMap.createTree(COMPARATOR, 500);
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(1000);
+            long score = random.nextInt(200);
+            switch (random.nextInt(4)) {
+                case 0:
+                    list.replaceOrPut(new Score(key, score));
+                    tree.replaceOrPut(new Score(key, score));
+                    break;
+                case 1:
+                    list.updateOrPut(key, s -> s.setScore(score), () -> new Score(key, 0));
+                    tree.updateOrPut(key, s -> s.setScore(score), () -> new Score(key, 0));
+                    break;
+                case 2:
+                    Assert.assertEquals(list.remove(key) == null, tree.remove(key) == null);
+                    break;
+                default:
+                    Assert.assertEquals(list.getIndex(key), tree.getIndex(key));
+            }
+            Assert.assertEquals(list.size(), tree.size());
+        }
+        Assert.assertEquals(list.getAll(), tree.getAll());
+        Assert.assertEquals(list.getRange(10, 30), tree.getRange(10, 30));
+        Assert.assertEquals(list.getRange(-1, 1000), tree.getRange(-1, 1000));
+        Assert.assertEquals(list.getAt(7), tree.getAt(7));
+        Assert.assertNull(tree.getAt(tree.size()));
+        for (Score score : tree.getAll()) {
+            Assert.assertEquals(list.getIndex(score.key()), tree.getIndex(score.key()));
+        }
+    }
+
+    @Test
+    public void testLoad() {
+        List<Score> values = new ArrayList<>();
+        for (long i = 0; i < 1000; ++i) {
+            values.add(new Score(i, (i * 7919) % 503));
+        }
+        RankMap<Long, Score> list = RankMap.create(COMPARATOR, 800);
+        values.forEach(list::putIfAbsent);
+        List<RankMap<Long, Score>> maps = Arrays.asList(RankMap.create(COMPARATOR, 800), RankMap.createTree(COMPARATOR, 800),
+                RankMap.createConcurrent(COMPARATOR, 800), RankMap.createFrequencyWrite(COMPARATOR, 800, 16, 0, TimeUnit.MILLISECONDS));
+        for (RankMap<Long, Score> map : maps) {
+            // 乱序和已排好序两种情况
+            map.load(values);
+            Assert.assertEquals(list.getAll(), map.getAll());
+            map.load(list.getAll());
+            Assert.assertEquals(list.getAll(), map.getAll());
+            for (Score score : list.getAll()) {
+                Assert.assertEquals(list.getIndex(score.key()), map.getIndex(score.key()));
+            }
+            map.replaceOrPut(new Score(5000, 1000));
+            map.remove(3L);
+            if (map instanceof FrequencyWriteRankMap) {
+                ((FrequencyWriteRankMap<Long, Score>) map).flush();
+            }
+            Assert.assertEquals(0, map.getIndex(5000L));
+            Assert.assertEquals(-1, map.getIndex(3L));
+        }
+    }
+
+    @Test
+    public void testLoadDuplicateKey() {
+        List<RankMap<Long, Score>> maps = Arrays.asList(RankMap.create(COMPARATOR), RankMap.createTree(COMPARATOR),
+                RankMap.createConcurrent(COMPARATOR), RankMap.createFrequencyWrite(COMPARATOR, 0, 16, 0, TimeUnit.MILLISECONDS));
+        for (RankMap<Long, Score> map : maps) {
+            map.load(Arrays.asList(new Score(1, 10), new Score(2, 20)));
+            List<Score> before = map.getAll();
+            try {
+                map.load(Arrays.asList(new Score(3, 30), new Score(4, 40), new Score(3, 50)));
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+            // 载入失败时排行保持原样
+            Assert.assertEquals(before, map.getAll());
+            Assert.assertEquals(2, map.size());
+            Assert.assertEquals(0, map.getIndex(2L));
+            Assert.assertEquals(1, map.getIndex(1L));
+            Assert.assertEquals(-1, map.getIndex(3L));
+        }
+    }
+
+    public static class Score implements RankMap.LongRankObj {
+        private final long id;
+        private long score;
+
+        public Score(long id, long score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public Long key() {
+            return id;
+        }
+
+        public long score() {
+            return score;
+        }
+
+        public void setScore(long score) {
+            this.score = score;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Score && ((Score) o).id == id && ((Score) o).score == score;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + score;
+        }
+    }
+}
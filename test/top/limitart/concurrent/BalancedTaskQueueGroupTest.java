@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hank
+ */
+public class BalancedTaskQueueGroupTest {
+
+    @Test
+    public void testRegisterSpreads() {
+        List<TaskQueue> created = new ArrayList<>();
+        BalancedTaskQueueGroup group = new BalancedTaskQueueGroup("balanced-test", 2, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            BalancedTaskQueueGroup.Member a = group.register();
+            BalancedTaskQueueGroup.Member b = group.register();
+            Assert.assertNotSame(a.queue(), b.queue());
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+
+    @Test
+    public void testUnregisterDuringMigrate() throws Exception {
+        List<TaskQueue> created = new ArrayList<>();
+        BalancedTaskQueueGroup group = new BalancedTaskQueueGroup("balanced-test", 2, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            BalancedTaskQueueGroup.Member member = group.register();
+            TaskQueue from = member.queue();
+            TaskQueue to = created.get(0) == from ? created.get(1) : created.get(0);
+            // 挡住原队列，让屏障在注销之后才执行
+            CountDownLatch gate = new CountDownLatch(1);
+            from.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            Assert.assertTrue(group.migrate(member, to));
+            group.unregister(member);
+            gate.countDown();
+            CountDownLatch done = new CountDownLatch(1);
+            member.execute(done::countDown);
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertFalse(member.migrating());
+            Assert.assertSame(to, member.queue());
+            Assert.assertEquals(0, group.memberCount(from));
+            Assert.assertEquals(0, group.memberCount(to));
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+
+    @Test
+    public void testMigrateKeepsOrder() throws Exception {
+        List<TaskQueue> created = new ArrayList<>();
+        BalancedTaskQueueGroup group = new BalancedTaskQueueGroup("balanced-test", 2, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            BalancedTaskQueueGroup.Member member = group.register();
+            TaskQueue from = member.queue();
+            TaskQueue to = created.get(0) == from ? created.get(1) : created.get(0);
+            List<Integer> order = new ArrayList<>();
+            int count = 2000;
+            CountDownLatch latch = new CountDownLatch(count);
+            for (int i = 0; i < count; ++i) {
+                int value = i;
+                member.execute(() -> {
+                    order.add(value);
+                    latch.countDown();
+                });
+                if (i == count / 2) {
+                    Assert.assertTrue(group.migrate(member, to));
+                }
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertSame(to, member.queue());
+            for (int i = 0; i < count; ++i) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+
+    @Test
+    public void testMigrateWhenRingFull() throws Exception {
+        List<TaskQueue> created = new ArrayList<>();
+        BalancedTaskQueueGroup group = new BalancedTaskQueueGroup("balanced-test", 2, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name, 4);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            BalancedTaskQueueGroup.Member member = group.register();
+            TaskQueue from = member.queue();
+            TaskQueue to = created.get(0) == from ? created.get(1) : created.get(0);
+            List<Integer> order = new ArrayList<>();
+            int count = 20;
+            CountDownLatch latch = new CountDownLatch(count + 1);
+            // 目标队列被占满，队列线程上的任务还要给迁移中的实体投递任务
+            CountDownLatch gate = new CountDownLatch(1);
+            to.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException ignored) {
+                }
+                member.execute(latch::countDown);
+            });
+            for (int i = 0; i < 3; ++i) {
+                to.execute(() -> {
+                });
+            }
+            CountDownLatch fromGate = new CountDownLatch(1);
+            member.execute(() -> {
+                try {
+                    fromGate.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            Assert.assertTrue(group.migrate(member, to));
+            for (int i = 0; i < count; ++i) {
+                int value = i;
+                member.execute(() -> {
+                    order.add(value);
+                    latch.countDown();
+                });
+            }
+            // 原队列线程转交缓存任务时阻塞在满的RingBuffer上
+            fromGate.countDown();
+            Thread.sleep(100);
+            gate.countDown();
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertSame(to, member.queue());
+            for (int i = 0; i < count; ++i) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+
+    @Test
+    public void testMigrateFromOwnThread() throws Exception {
+        List<TaskQueue> created = new ArrayList<>();
+        BalancedTaskQueueGroup group = new BalancedTaskQueueGroup("balanced-test", 2, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            BalancedTaskQueueGroup.Member member = group.register();
+            TaskQueue from = member.queue();
+            TaskQueue to = created.get(0) == from ? created.get(1) : created.get(0);
+            List<Integer> order = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(4);
+            CountDownLatch gate = new CountDownLatch(1);
+            member.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException ignored) {
+                }
+                Assert.assertTrue(group.migrate(member, to));
+                member.execute(() -> {
+                    order.add(3);
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                });
+                order.add(0);
+                latch.countDown();
+            });
+            for (int i = 1; i <= 2; ++i) {
+                int value = i;
+                member.execute(() -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ignored) {
+                    }
+                    order.add(value);
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                });
+            }
+            gate.countDown();
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 3), order);
+            Assert.assertSame(from.thread(), threads.get(0));
+            Assert.assertSame(from.thread(), threads.get(1));
+            Assert.assertSame(to.thread(), threads.get(2));
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author hank
+ */
+public class DisruptorTaskQueueTest {
+    private DisruptorTaskQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = DisruptorTaskQueue.create("disruptor-test");
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    public void testDeferToBatchEnd() throws Exception {
+        AtomicInteger flushed = new AtomicInteger();
+        Runnable flush = flushed::incrementAndGet;
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.addBatchEndListener(latch::countDown);
+        Runnable[] tasks = new Runnable[10];
+        for (int i = 0; i < tasks.length; ++i) {
+            tasks[i] = () -> queue.deferToBatchEnd(flush);
+        }
+        queue.executeAll(tasks);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, flushed.get());
+    }
+
+    @Test
+    public void testDeferFromListenerOnIdleQueue() throws Exception {
+        CountDownLatch deferredRun = new CountDownLatch(1);
+        Runnable deferredTask = deferredRun::countDown;
+        AtomicInteger rounds = new AtomicInteger();
+        // 监听器在批次结束时才推迟任务，之后队列再无任务
+        queue.addBatchEndListener(() -> {
+            if (rounds.getAndIncrement() == 0) {
+                queue.deferToBatchEnd(deferredTask);
+            }
+        });
+        queue.execute(() -> {
+        });
+        Assert.assertTrue(deferredRun.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDeferChainOnIdleQueue() throws Exception {
+        int depth = 100;
+        CountDownLatch latch = new CountDownLatch(depth);
+        Runnable[] chain = new Runnable[depth];
+        for (int i = 0; i < depth; ++i) {
+            int next = i + 1;
+            chain[i] = () -> {
+                latch.countDown();
+                if (next < depth) {
+                    queue.deferToBatchEnd(chain[next]);
+                }
+            };
+        }
+        queue.execute(() -> queue.deferToBatchEnd(chain[0]));
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTypedExecute() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        TaskHandler<AtomicInteger, String> handler = (c, s, v) -> c.addAndGet(s.length() + (int) v);
+        TaskCompletion completion = new TaskCompletion();
+        for (int i = 0; i < 3; ++i) {
+            completion.reset();
+            queue.execute(handler, counter, "abc", 2, completion);
+            Assert.assertTrue(completion.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(completion.isSuccess());
+        }
+        Assert.assertEquals(15, counter.get());
+        completion.reset();
+        queue.execute((c, s, v) -> {
+            throw new IllegalStateException(s);
+        }, counter, "fail", 0, completion);
+        Assert.assertTrue(completion.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(completion.isSuccess());
+        Assert.assertTrue(completion.cause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        Thread[] thread = new Thread[1];
+        queue.scheduleAtFixedRate(() -> {
+            thread[0] = Thread.currentThread();
+            latch.countDown();
+        }, 10, 20, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertSame(queue.thread(), thread[0]);
+    }
+
+    @Test
+    public void testOverflowReject() throws Exception {
+        DisruptorTaskQueue small = DisruptorTaskQueue.create("disruptor-reject-test", 4);
+        try {
+            AtomicInteger rejected = new AtomicInteger();
+            small.overflow(TaskQueueOverflowPolicy.REJECT).rejected(r -> rejected.incrementAndGet());
+            CountDownLatch block = new CountDownLatch(1);
+            small.execute(() -> await(block));
+            int accepted = 0;
+            for (int i = 0; i < 10; ++i) {
+                if (small.tryExecute(() -> {
+                })) {
+                    ++accepted;
+                }
+            }
+            Assert.assertTrue(accepted < 10);
+            for (int i = 0; i < 10; ++i) {
+                small.execute(() -> {
+                });
+            }
+            Assert.assertTrue(rejected.get() > 0);
+            block.countDown();
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    public void testOverflowSpill() throws Exception {
+        DisruptorTaskQueue small = DisruptorTaskQueue.create("disruptor-spill-test", 4);
+        try {
+            small.overflow(TaskQueueOverflowPolicy.SPILL);
+            CountDownLatch block = new CountDownLatch(1);
+            small.execute(() -> await(block));
+            List<Integer> result = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; ++i) {
+                int index = i;
+                small.execute(() -> {
+                    result.add(index);
+                    done.countDown();
+                });
+            }
+            Assert.assertTrue(small.metrics().depth() > 4);
+            block.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; ++i) {
+                Assert.assertEquals(i, (int) result.get(i));
+            }
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    public void testSpillNeedsMultiProducer() {
+        DisruptorTaskQueue single = DisruptorTaskQueue.create("disruptor-single-test", 4, TaskQueueWaitStrategy.BLOCKING, ProducerType.SINGLE);
+        try {
+            single.overflow(TaskQueueOverflowPolicy.REJECT);
+            try {
+                single.overflow(TaskQueueOverflowPolicy.SPILL);
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
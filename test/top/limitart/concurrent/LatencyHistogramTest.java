@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hank
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.count());
+        Assert.assertEquals(1000, histogram.max());
+        Assert.assertEquals(500.5, histogram.mean(), 0.001);
+        long p50 = histogram.percentile(50);
+        Assert.assertTrue(p50 >= 500 && p50 <= 500 * 17 / 16);
+        Assert.assertEquals(1000, histogram.percentile(100));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.count());
+        Assert.assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    public void testBucketBound() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 100, 12345, (1L << 40) - 1, 1L << 40, Long.MAX_VALUE}) {
+            Assert.assertTrue(LatencyHistogram.upperBound(LatencyHistogram.indexOf(value)) >= value);
+        }
+        long last = (1L << 40) - 1;
+        Assert.assertTrue(LatencyHistogram.upperBound(LatencyHistogram.indexOf(last)) < Long.MAX_VALUE);
+        Assert.assertTrue(LatencyHistogram.indexOf(last) < LatencyHistogram.indexOf(1L << 40));
+    }
+
+    @Test
+    public void testOverflow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.percentile(50));
+        histogram.record(100);
+        histogram.record(1L << 50);
+        Assert.assertEquals(1L << 50, histogram.percentile(100));
+        Assert.assertTrue(histogram.percentile(50) <= 100 * 17 / 16);
+    }
+
+    @Test
+    public void testQueueMetrics() throws InterruptedException {
+        DisruptorTaskQueue queue = DisruptorTaskQueue.create("metrics-test");
+        try {
+            Assert.assertSame(queue.metrics(), TaskQueueMetrics.get("metrics-test"));
+            queue.metrics().slowThreshold(10, TimeUnit.MILLISECONDS);
+            CountDownLatch latch = new CountDownLatch(2);
+            queue.execute(latch::countDown);
+            queue.execute(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                latch.countDown();
+            });
+            Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            Assert.assertEquals(2, queue.metrics().executeTime().count());
+            Assert.assertEquals(2, queue.metrics().waitTime().count());
+            Assert.assertEquals(1, queue.metrics().slowTasks());
+        } finally {
+            queue.shutdown();
+        }
+        Assert.assertNull(TaskQueueMetrics.get("metrics-test"));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author hank
+ */
+public class TaskQueueActorTest {
+    private TaskQueue queue1;
+    private TaskQueue queue2;
+    private Room room1;
+    private Room room2;
+
+    @Before
+    public void setUp() {
+        queue1 = DisruptorTaskQueue.create("actor-test-1");
+        queue2 = DisruptorTaskQueue.create("actor-test-2");
+        room1 = new Room(queue1);
+        room2 = new Room(queue2);
+    }
+
+    @After
+    public void tearDown() {
+        queue1.shutdown();
+        queue2.shutdown();
+    }
+
+    @Test
+    public void testRequestResumesOnOwnQueue() throws Exception {
+        Player player = join(room1);
+        CompletableFuture<Thread> resumed = new CompletableFuture<>();
+        queue1.execute(() -> player.requestAnother(room2, () -> Thread.currentThread() == queue2.thread(), 1, TimeUnit.SECONDS)
+                .whenComplete((onQueue2, e) -> resumed.complete(Boolean.TRUE.equals(onQueue2) ? Thread.currentThread() : null)));
+        Assert.assertSame(queue1.thread(), resumed.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Player player = join(room1);
+        CompletableFuture<Throwable> failed = new CompletableFuture<>();
+        queue1.execute(() -> player.requestAnother(room2, () -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 50, TimeUnit.MILLISECONDS).whenComplete((r, e) -> failed.complete(e)));
+        Assert.assertTrue(failed.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+    }
+
+    @Test
+    public void testCallbackCycleAllowed() throws Exception {
+        Player player1 = join(room1);
+        Player player2 = join(room2);
+        CompletableFuture<Boolean> inner = new CompletableFuture<>();
+        queue1.execute(() -> player1.requestAnother(room2, () -> {
+            player2.requestAnother(room1, () -> true, 1, TimeUnit.SECONDS).whenComplete((r, e) -> {
+                if (e != null) {
+                    inner.completeExceptionally(e);
+                } else {
+                    inner.complete(r);
+                }
+            });
+            return true;
+        }, 1, TimeUnit.SECONDS));
+        Assert.assertTrue(inner.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDeadlockDetected() throws Exception {
+        Player player1 = join(room1);
+        Player player2 = join(room2);
+        CompletableFuture<Throwable> inner = new CompletableFuture<>();
+        CompletableFuture<Boolean> outer = new CompletableFuture<>();
+        queue1.execute(() -> {
+            try {
+                // 在队列1上同步等待回复
+                outer.complete(player1.requestAnother(room2, () -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    player2.requestAnother(room1, () -> true, 1, TimeUnit.SECONDS).whenComplete((r, e) -> inner.complete(e));
+                    return true;
+                }, 1, TimeUnit.SECONDS).toCompletableFuture().get());
+            } catch (Exception e) {
+                outer.completeExceptionally(e);
+            }
+        });
+        Assert.assertTrue(inner.get(5, TimeUnit.SECONDS) instanceof TaskQueueDeadlockException);
+        Assert.assertTrue(outer.get(5, TimeUnit.SECONDS));
+    }
+
+    private Player join(Room room) throws InterruptedException, ExecutionException {
+        Player player = new Player();
+        CompletableFuture<Boolean> joined = new CompletableFuture<>();
+        player.join(room, () -> joined.complete(true), joined::completeExceptionally);
+        joined.get();
+        return player;
+    }
+
+    private static class Player extends TaskQueueActor<Room> {
+    }
+
+    private static class Room implements Actor.Place<TaskQueue> {
+        private final TaskQueue queue;
+
+        private Room(TaskQueue queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public TaskQueue res() {
+            return queue;
+        }
+    }
+}
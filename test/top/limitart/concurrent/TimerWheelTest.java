@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author hank
+ */
+public class TimerWheelTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testOnce() {
+        long start = System.nanoTime();
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger counter = new AtomicInteger();
+        TimerWheel.Timeout timeout = TimerWheel.newTimeout(counter::incrementAndGet, 200, 0, TimeUnit.MILLISECONDS);
+        wheel.add(timeout);
+        wheel.advance(start + 100 * MS);
+        Assert.assertEquals(0, counter.get());
+        wheel.advance(start + 300 * MS);
+        Assert.assertEquals(1, counter.get());
+        Assert.assertTrue(timeout.isDone());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCancel() {
+        long start = System.nanoTime();
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger counter = new AtomicInteger();
+        TimerWheel.Timeout timeout = TimerWheel.newTimeout(counter::incrementAndGet, 20, 0, TimeUnit.MILLISECONDS);
+        wheel.add(timeout);
+        Assert.assertTrue(timeout.cancel(false));
+        wheel.advance(start + 100 * MS);
+        Assert.assertEquals(0, counter.get());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testFixedRate() {
+        long start = System.nanoTime();
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger counter = new AtomicInteger();
+        TimerWheel.Timeout timeout = TimerWheel.newTimeout(counter::incrementAndGet, 0, 30, TimeUnit.MILLISECONDS);
+        wheel.add(timeout);
+        for (long now = start; now <= start + 200 * MS; now += 5 * MS) {
+            wheel.advance(now);
+        }
+        Assert.assertTrue(counter.get() >= 6);
+        Assert.assertFalse(timeout.isDone());
+        timeout.cancel(false);
+        int fired = counter.get();
+        wheel.advance(start + 400 * MS);
+        Assert.assertEquals(fired, counter.get());
+    }
+}
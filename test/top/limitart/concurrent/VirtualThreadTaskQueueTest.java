@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author hank
+ */
+public class VirtualThreadTaskQueueTest {
+
+    @Test
+    public void testSerialOrder() throws Exception {
+        VirtualThreadTaskQueue queue = VirtualThreadTaskQueue.create("virtual-test");
+        try {
+            List<Integer> order = new ArrayList<>();
+            int count = 5000;
+            CountDownLatch latch = new CountDownLatch(count);
+            AtomicBoolean sameThread = new AtomicBoolean(true);
+            for (int i = 0; i < count; ++i) {
+                int value = i;
+                queue.execute(() -> {
+                    if (queue.thread() != Thread.currentThread()) {
+                        sameThread.set(false);
+                    }
+                    order.add(value);
+                    latch.countDown();
+                });
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(sameThread.get());
+            for (int i = 0; i < count; ++i) {
+                Assert.assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        VirtualThreadTaskQueue queue = VirtualThreadTaskQueue.create("virtual-test");
+        AtomicBoolean released = new AtomicBoolean();
+        queue.execute(() -> {
+            while (!released.get()) {
+                Thread.yield();
+            }
+        });
+        int count = 10;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; ++i) {
+            queue.execute(latch::countDown);
+        }
+        queue.shutdown();
+        try {
+            queue.execute(() -> {
+            });
+            Assert.fail();
+        } catch (TaskQueueRejectedException ignored) {
+        }
+        released.set(true);
+        // 关闭前投递的任务照常执行完
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
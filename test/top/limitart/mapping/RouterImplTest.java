@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.mapping;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author hank
+ */
+public class RouterImplTest {
+    private Router<Request, Param> router;
+
+    @Before
+    public void setUp() throws Exception {
+        router = Router.empty(Request.class, Param.class);
+        router.registerMapperClass(Handler.class);
+    }
+
+    @Test
+    public void testInvoker() throws Exception {
+        MapperInvoker<Param> invoker = router.invoker(Request.class);
+        Assert.assertNotNull(invoker);
+        Assert.assertTrue(invoker.getClass().getName().startsWith(Handler.class.getName() + "$onRequest"));
+        Request request = new Request();
+        invoker.invoke(new Param(request));
+        Assert.assertEquals(1, request.handled);
+        router.request(request, () -> new Param(request), i -> i.invoke());
+        Assert.assertEquals(2, request.handled);
+    }
+
+    @Test
+    public void testReplaceInstance() throws Exception {
+        Handler another = new Handler();
+        another.step = 10;
+        router.replaceInstance(Handler.class, new Request(), another);
+        Request request = new Request();
+        router.invoker(Request.class).invoke(new Param(request));
+        Assert.assertEquals(10, request.handled);
+    }
+
+    public static class Request {
+        private int handled;
+    }
+
+    public static class Param extends RequestContext<Request> {
+        public Param(Request request) {
+            super(request);
+        }
+    }
+
+    @MapperClass
+    public static class Handler {
+        private int step = 1;
+
+        @Mapper(Request.class)
+        public int onRequest(Param param) {
+            Request request = param.msg();
+            request.handled += step;
+            return request.handled;
+        }
+    }
+}
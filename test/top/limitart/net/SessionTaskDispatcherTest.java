@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+import top.limitart.concurrent.DisruptorTaskQueue;
+import top.limitart.concurrent.TaskQueue;
+import top.limitart.concurrent.TaskQueueGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hank
+ */
+public class SessionTaskDispatcherTest {
+
+    @Test
+    public void testPauseResumeRace() throws Exception {
+        List<TaskQueue> created = new ArrayList<>();
+        TaskQueueGroup group = new TaskQueueGroup("dispatcher-test", 1, name -> {
+            TaskQueue queue = DisruptorTaskQueue.create(name);
+            created.add(queue);
+            return queue;
+        });
+        try {
+            SessionTaskDispatcher<Object> dispatcher = new SessionTaskDispatcher<>(group, session -> 1L, 2);
+            int producers = 4;
+            int count = 20000;
+            List<EmbeddedChannel> channels = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(producers * count);
+            for (int i = 0; i < producers; ++i) {
+                EmbeddedChannel channel = new EmbeddedChannel();
+                channels.add(channel);
+                Session<Object, EventLoop> session = new NettySession<>(channel);
+                Thread thread = new Thread(() -> {
+                    for (int j = 0; j < count; ++j) {
+                        dispatcher.dispatch(session, latch::countDown);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            // 积压消化完后所有通道都恢复读取
+            Thread.sleep(50);
+            Assert.assertEquals(0, dispatcher.pending(created.get(0)));
+            for (EmbeddedChannel channel : channels) {
+                Assert.assertTrue(channel.config().isAutoRead());
+            }
+        } finally {
+            created.forEach(TaskQueue::shutdown);
+        }
+    }
+}
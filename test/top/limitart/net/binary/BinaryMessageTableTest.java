@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author hank
+ */
+public class BinaryMessageTableTest {
+
+    @Test
+    public void testRegister() throws Exception {
+        BinaryMessageTable table = new BinaryMessageTable();
+        short id = new BinaryMetaCodecTest.AllTypeMessage().id();
+        short negative = BinaryMessages.createID(0XFF, 0X7F);
+        table.register(id, (Class) BinaryMetaCodecTest.AllTypeMessage.class, null);
+        table.register(negative, (Class) BinaryMetaCodecTest.AllTypeMessage.class, null);
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals(BinaryMetaCodecTest.AllTypeMessage.class, table.get(id).messageClass());
+        Assert.assertTrue(table.get(id).newInstance() instanceof BinaryMetaCodecTest.AllTypeMessage);
+        Assert.assertEquals(negative, table.get(negative).id());
+        Assert.assertNull(table.get(BinaryMessages.createID(0X01, 0X02)));
+        Assert.assertNull(table.get(BinaryMessages.createID(0X02, 0X01)));
+    }
+
+    @Test(expected = BinaryMessageIDDuplicatedException.class)
+    public void testDuplicated() throws Exception {
+        BinaryMessageTable table = new BinaryMessageTable();
+        short id = new BinaryMetaCodecTest.AllTypeMessage().id();
+        table.register(id, (Class) BinaryMetaCodecTest.AllTypeMessage.class, null);
+        table.register(id, (Class) BinaryMetaCodecTest.AllTypeMessage.class, null);
+    }
+}
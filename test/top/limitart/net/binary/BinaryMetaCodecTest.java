@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016-present The Limitart Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package top.limitart.net.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author hank
+ */
+public class BinaryMetaCodecTest {
+    private AllTypeMessage msg;
+
+    @Before
+    public void setUp() {
+        msg = new AllTypeMessage();
+        msg.b = 1;
+        msg.s = -2;
+        msg.i = 123456;
+        msg.l = -1234567890123L;
+        msg.f = 1.5F;
+        msg.d = 2.25D;
+        msg.c = 'x';
+        msg.z = true;
+        msg.boxInt = 99;
+        msg.boxLong = null;
+        msg.str = "hello limitart";
+        msg.ints = new int[]{1, 2, 3};
+        msg.bytes = new byte[]{4, 5};
+        msg.boxInts = new Integer[]{7, null, 9};
+        msg.strs = new String[]{"a", null, ""};
+        msg.intList = Arrays.asList(1, 2);
+        msg.strList = new ArrayList<>();
+        InnerMeta inner = new InnerMeta();
+        inner.id = 5;
+        inner.name = "inner";
+        msg.meta = inner;
+        msg.metaList = Arrays.asList(inner, null);
+        msg.metaArray = new InnerMeta[]{inner};
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        msg.buffer(buf);
+        msg.encode();
+        AllTypeMessage result = new AllTypeMessage();
+        result.buffer(buf);
+        result.decode();
+        Assert.assertEquals(0, buf.readableBytes());
+        Assert.assertEquals(msg.b, result.b);
+        Assert.assertEquals(msg.s, result.s);
+        Assert.assertEquals(msg.i, result.i);
+        Assert.assertEquals(msg.l, result.l);
+        Assert.assertEquals(msg.f, result.f, 0);
+        Assert.assertEquals(msg.d, result.d, 0);
+        Assert.assertEquals(msg.c, result.c);
+        Assert.assertEquals(msg.z, result.z);
+        Assert.assertEquals(msg.boxInt, result.boxInt);
+        Assert.assertEquals(Long.valueOf(0), result.boxLong);
+        Assert.assertEquals(msg.str, result.str);
+        Assert.assertArrayEquals(msg.ints, result.ints);
+        Assert.assertArrayEquals(msg.bytes, result.bytes);
+        Assert.assertArrayEquals(new Integer[]{7, 0, 9}, result.boxInts);
+        Assert.assertArrayEquals(new String[]{"a", null, ""}, result.strs);
+        Assert.assertEquals(msg.intList, result.intList);
+        Assert.assertEquals(msg.strList, result.strList);
+        Assert.assertEquals(5, result.meta.id);
+        Assert.assertEquals("inner", result.meta.name);
+        Assert.assertEquals(2, result.metaList.size());
+        Assert.assertNull(result.metaList.get(1));
+        Assert.assertEquals("inner", result.metaArray[0].name);
+        Assert.assertNull(result.nullArray);
+    }
+
+    @Test
+    public void testSameAsReflection() throws Exception {
+        ByteBuf generated = Unpooled.buffer();
+        msg.buffer(generated);
+        msg.encode();
+        ByteBuf reflected = Unpooled.buffer();
+        msg.buffer(reflected);
+        msg.reflectEncode();
+        Assert.assertTrue(ByteBufUtil.equals(generated, reflected));
+        Assert.assertEquals(AllTypeMessage.class.getName() + "BinaryMetaCodec", BinaryMetaCodec.get(AllTypeMessage.class).getClass().getName());
+    }
+
+    @Test
+    public void testNonPublicFallback() throws Exception {
+        HiddenMeta hidden = new HiddenMeta();
+        hidden.value = 10;
+        ByteBuf buf = Unpooled.buffer();
+        hidden.buffer(buf);
+        hidden.encode();
+        HiddenMeta result = new HiddenMeta();
+        result.buffer(buf);
+        result.decode();
+        Assert.assertEquals(10, result.value);
+        Assert.assertNotEquals(HiddenMeta.class.getName() + "BinaryMetaCodec", BinaryMetaCodec.get(HiddenMeta.class).getClass().getName());
+    }
+
+    @Test
+    public void testRecycle() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        msg.buffer(buf);
+        msg.encode();
+        AllTypeMessage decoded = new AllTypeMessage();
+        decoded.buffer(buf);
+        decoded.decode();
+        InnerMeta nested = decoded.meta;
+        BinaryMetaPool.recycle(decoded);
+        Assert.assertEquals(0, decoded.i);
+        Assert.assertNull(decoded.str);
+        Assert.assertNull(decoded.meta);
+        Assert.assertNull(nested.name);
+        Assert.assertSame(decoded, BinaryMetaPool.take(AllTypeMessage.class));
+        Assert.assertNull(BinaryMetaPool.take(AllTypeMessage.class));
+        InnerMeta reused = BinaryMetaPool.take(InnerMeta.class);
+        Assert.assertNotNull(reused);
+        BinaryMetaPool.recycle(reused);
+        BinaryMetaPool.recycle(reused);
+        Assert.assertSame(reused, BinaryMetaPool.take(InnerMeta.class));
+    }
+
+    @Test
+    public void testPoolingOnlyWhenOptedIn() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        msg.buffer(buf);
+        msg.encode();
+        InnerMeta pooled = new InnerMeta();
+        BinaryMetaPool.recycle(pooled);
+        // 没有开启回收的消息不从池中获取嵌套实例
+        AllTypeMessage plain = new AllTypeMessage();
+        plain.buffer(buf.duplicate());
+        plain.decode();
+        Assert.assertNotSame(pooled, plain.meta);
+        Assert.assertSame(pooled, BinaryMetaPool.take(InnerMeta.class));
+        BinaryMetaPool.recycle(pooled);
+        AllTypeMessage recycling = new AllTypeMessage();
+        recycling.pooling(true);
+        recycling.buffer(buf.duplicate());
+        recycling.decode();
+        Assert.assertSame(pooled, recycling.meta);
+        Assert.assertEquals(msg.meta.name, recycling.meta.name);
+    }
+
+    @Test
+    public void testUtf8String() throws Exception {
+        for (String name : new String[]{"中文\uD83D\uDE00\uD800x", "\uD800中", "\uDC00中", "a\uD800", "\uDC00\uD800x"}) {
+            InnerMeta meta = new InnerMeta();
+            meta.id = 7;
+            meta.name = name;
+            ByteBuf buf = Unpooled.buffer();
+            meta.buffer(buf);
+            meta.encode();
+            InnerMeta result = new InnerMeta();
+            result.buffer(buf);
+            result.decode();
+            Assert.assertEquals(0, buf.readableBytes());
+            Assert.assertEquals(7, result.id);
+            Assert.assertEquals(new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), result.name);
+        }
+    }
+
+    @Test
+    public void testPayload() throws Exception {
+        PayloadMeta meta = new PayloadMeta();
+        meta.payload = BinaryPayload.of("forward me");
+        meta.after = 3;
+        ByteBuf buf = Unpooled.buffer();
+        meta.buffer(buf);
+        meta.encode();
+        PayloadMeta result = new PayloadMeta();
+        result.buffer(buf);
+        result.decode();
+        Assert.assertEquals(3, result.after);
+        Assert.assertEquals(2, buf.refCnt());
+        Assert.assertEquals("forward me", result.payload.string());
+        ByteBuf forward = Unpooled.buffer();
+        result.buffer(forward);
+        result.encode();
+        Assert.assertTrue(ByteBufUtil.equals(buf.resetReaderIndex(), forward));
+        BinaryMetaPool.recycle(result);
+        Assert.assertNull(result.payload);
+        Assert.assertEquals(1, buf.refCnt());
+    }
+
+    public static class PayloadMeta extends BinaryMeta {
+        public BinaryPayload payload;
+        public int after;
+    }
+
+    public static class InnerMeta extends BinaryMeta {
+        public int id;
+        public String name;
+    }
+
+    public static class AllTypeMessage extends BinaryMessage {
+        public byte b;
+        public short s;
+        public int i;
+        public long l;
+        public float f;
+        public double d;
+        public char c;
+        public boolean z;
+        public Integer boxInt;
+        public Long boxLong;
+        public String str;
+        public int[] ints;
+        public byte[] bytes;
+        public Integer[] boxInts;
+        public String[] strs;
+        public long[] nullArray;
+        public List<Integer> intList;
+        public List<String> strList;
+        public InnerMeta meta;
+        public List<InnerMeta> metaList;
+        public InnerMeta[] metaArray;
+        public transient int ignored;
+
+        @Override
+        public short id() {
+            return BinaryMessages.createID(0X01, 0X01);
+        }
+    }
+
+    static class HiddenMeta extends BinaryMeta {
+        int value;
+    }
+}